@@ -0,0 +1,58 @@
+package org.itmo.lab3.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Конфигурация подсистемы импорта организаций.
+ * Параметры читаются из import.properties.
+ */
+@Configuration
+@PropertySource(value = "classpath:import.properties", ignoreResourceNotFound = true)
+public class ImportConfig {
+
+    /**
+     * Пул потоков для асинхронных задач импорта.
+     * 
+     * - poolSize: сколько импортов выполняется одновременно (каждый держит
+     *   соединение из пула Druid на всё время транзакции)
+     * - queueCapacity: сколько задач может ждать в очереди; при переполнении
+     *   новая задача отклоняется
+     */
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor(@Value("${import.async.pool-size:2}") int poolSize,
+                                                 @Value("${import.async.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Пул потоков для параллельной валидации порций импорта (см. ImportValidationService).
+     * 
+     * - threads: число потоков; 0 - по числу ядер
+     * - очередь ограничена: срезов одной порции немного, при переполнении
+     *   срез проверяется в вызывающем потоке
+     */
+    @Bean
+    public ThreadPoolTaskExecutor validationExecutor(@Value("${import.validation.threads:0}") int threads) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 16);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("import-validation-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -3,9 +3,11 @@ package org.itmo.lab3.config;
 import com.alibaba.druid.pool.DruidDataSource;
 import jakarta.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -44,7 +46,7 @@ public class JpaConfig {
         
         // Основные параметры подключения (соответствуют standalone.xml)
         dataSource.setDriverClassName("org.postgresql.Driver");
-        dataSource.setUrl("jdbc:postgresql://pg:5432/studs");
+        dataSource.setUrl("jdbc:postgresql://pg:5432/studs?reWriteBatchedInserts=true");
         dataSource.setUsername("s408256");
         dataSource.setPassword("a3ag1NfP3rO3Gezo");
         
@@ -69,7 +71,26 @@ public class JpaConfig {
         return dataSource;
     }
 
+    /**
+     * Миграции схемы (db/migration), выполняются до инициализации Hibernate.
+     * 
+     * Схема больше не создаётся hbm2ddl: Hibernate только проверяет, что она
+     * соответствует сущностям. БД, созданная прежними версиями через hbm2ddl,
+     * принимается с базовой версией 0; миграции идемпотентны и дополняют её
+     * недостающими объектами.
+     */
+    @Bean(initMethod = "migrate")
+    public Flyway flyway() throws SQLException {
+        return Flyway.configure()
+            .dataSource(dataSource())
+            .locations("classpath:db/migration")
+            .baselineOnMigrate(true)
+            .baselineVersion("0")
+            .load();
+    }
+
     @Bean
+    @DependsOn("flyway")
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() throws SQLException {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
         em.setDataSource(dataSource());
@@ -79,7 +100,8 @@ public class JpaConfig {
         em.setJpaVendorAdapter(vendorAdapter);
 
         Properties properties = new Properties();
-        properties.setProperty("hibernate.hbm2ddl.auto", "update");
+        // Схемой управляет Flyway, Hibernate только сверяет её с сущностями
+        properties.setProperty("hibernate.hbm2ddl.auto", "validate");
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
         properties.setProperty("hibernate.show_sql", "true");
         properties.setProperty("hibernate.format_sql", "true");
@@ -97,6 +119,19 @@ public class JpaConfig {
         properties.setProperty("hibernate.javax.cache.uri", "classpath:ehcache.xml");
         // Включение статистики для мониторинга кэша
         properties.setProperty("hibernate.generate_statistics", "true");
+
+        // Пакетная запись (JDBC batching)
+        // Размер пакета INSERT/UPDATE
+        properties.setProperty("hibernate.jdbc.batch_size", "50");
+        // Группировка INSERT/UPDATE по таблицам, чтобы пакеты не разрывались
+        properties.setProperty("hibernate.order_inserts", "true");
+        properties.setProperty("hibernate.order_updates", "true");
+        // Оптимизатор последовательностей: один nextval на allocationSize идентификаторов
+        properties.setProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+
+        // Догрузка LAZY-связей, не покрытых графом загрузки: прокси одного
+        // типа инициализируются одним SELECT ... WHERE id IN (...) до 50 штук
+        properties.setProperty("hibernate.default_batch_fetch_size", "50");
         
         em.setJpaProperties(properties);
 
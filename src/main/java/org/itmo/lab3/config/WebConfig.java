@@ -5,7 +5,9 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.DefaultServletHandlerConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
@@ -18,6 +20,8 @@ import org.springframework.web.servlet.view.JstlView;
 @ComponentScan(basePackages = "org.itmo.lab3.controller")
 public class WebConfig implements WebMvcConfigurer {
 
+    private static final long STREAMING_TIMEOUT_MILLIS = 30 * 60 * 1000;
+
     @Bean
     public ViewResolver viewResolver() {
         InternalResourceViewResolver resolver = new InternalResourceViewResolver();
@@ -40,6 +44,28 @@ public class WebConfig implements WebMvcConfigurer {
                 .addResourceLocations("/WEB-INF/resources/js/");
     }
 
+    /**
+     * Асинхронные ответы (StreamingResponseBody при скачивании файлов импорта)
+     * пишутся в отдельном ограниченном пуле, а не в SimpleAsyncTaskExecutor,
+     * который создаёт поток на каждый запрос. Таймаут большой: большие файлы
+     * отдаются медленным клиентам долго.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingExecutor());
+        configurer.setDefaultTimeout(STREAMING_TIMEOUT_MILLIS);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor streamingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("streaming-");
+        return executor;
+    }
+
     @Bean
     public MultipartResolver multipartResolver() {
         return new StandardServletMultipartResolver();
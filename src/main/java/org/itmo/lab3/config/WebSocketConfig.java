@@ -1,16 +1,30 @@
 package org.itmo.lab3.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 
+/**
+ * Конфигурация STOMP поверх WebSocket.
+ * Параметры читаются из websocket.properties.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
+@PropertySource(value = "classpath:websocket.properties", ignoreResourceNotFound = true)
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Value("${websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimit;
+
+    @Value("${websocket.send-buffer-size-kb:512}")
+    private int sendBufferSizeKb;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
@@ -21,5 +35,15 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").withSockJS();
     }
-}
 
+    /**
+     * Ограничения отправки медленному подписчику: если сообщение не ушло за
+     * sendTimeLimit или неотправленные сообщения превысили буфер, сессия
+     * закрывается, а не копит очередь в памяти сервера.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimit);
+        registration.setSendBufferSizeLimit(sendBufferSizeKb * 1024);
+    }
+}
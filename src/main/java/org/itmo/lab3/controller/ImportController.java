@@ -1,20 +1,33 @@
 package org.itmo.lab3.controller;
 
 import org.itmo.lab3.model.ImportHistory;
+import org.itmo.lab3.model.ImportRowError;
 import org.itmo.lab3.service.DistributedTransactionService;
+import org.itmo.lab3.service.ImportJob;
+import org.itmo.lab3.service.ImportJobService;
 import org.itmo.lab3.service.ImportService;
 import org.itmo.lab3.service.MinioService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/import")
@@ -22,12 +35,15 @@ public class ImportController {
 
     private final ImportService importService;
     private final DistributedTransactionService distributedTransactionService;
+    private final ImportJobService importJobService;
 
     @Autowired
     public ImportController(ImportService importService,
-                          DistributedTransactionService distributedTransactionService) {
+                          DistributedTransactionService distributedTransactionService,
+                          ImportJobService importJobService) {
         this.importService = importService;
         this.distributedTransactionService = distributedTransactionService;
+        this.importJobService = importJobService;
     }
 
     @GetMapping
@@ -40,10 +56,16 @@ public class ImportController {
     /**
      * Загрузка файла с использованием распределенной транзакции.
      * Файл сохраняется в MinIO, данные импортируются в БД атомарно.
+     * При async=true импорт ставится в очередь и выполняется в фоне.
+     * При skipInvalid=true невалидные строки пропускаются и попадают в отчёт.
+     * При force=true уже импортированный файл импортируется повторно.
      */
     @PostMapping("/upload")
     public String uploadFile(@RequestParam("file") MultipartFile file,
                            @RequestParam("username") String username,
+                           @RequestParam(name = "async", defaultValue = "false") boolean async,
+                           @RequestParam(name = "skipInvalid", defaultValue = "false") boolean skipInvalid,
+                           @RequestParam(name = "force", defaultValue = "false") boolean force,
                            RedirectAttributes redirectAttributes) {
         
         if (file.isEmpty()) {
@@ -56,11 +78,33 @@ public class ImportController {
             return "redirect:/import";
         }
 
+        if (async) {
+            try {
+                ImportJob job = importJobService.submit(file, username, skipInvalid, force);
+                redirectAttributes.addFlashAttribute("success", 
+                    "Импорт поставлен в очередь, задача " + job.getId());
+                redirectAttributes.addFlashAttribute("jobId", job.getId());
+            } catch (IllegalStateException | IOException e) {
+                redirectAttributes.addFlashAttribute("error", 
+                    "Ошибка импорта: " + e.getMessage());
+            }
+            return "redirect:/import";
+        }
+
         // Выполняем распределенную транзакцию (MinIO + БД)
         DistributedTransactionService.ImportResult result = 
-            distributedTransactionService.executeDistributedImport(file, username);
+            distributedTransactionService.executeDistributedImport(file, username, skipInvalid, force);
         
-        if (result.isSuccess()) {
+        if (result.isSuccess() && result.isDuplicate()) {
+            redirectAttributes.addFlashAttribute("success", 
+                "Этот файл уже импортирован (импорт #" + result.getHistory().getId() + ", " 
+                + result.getHistory().getImportedCount() + " организаций), повторный импорт не выполнялся. "
+                + "Чтобы импортировать его снова, отметьте «Импортировать повторно»");
+        } else if (result.isSuccess() && "PARTIAL".equals(result.getHistory().getStatus())) {
+            redirectAttributes.addFlashAttribute("success", 
+                "Импортировано " + result.getHistory().getImportedCount() + " организаций, отклонено строк: " 
+                + result.getHistory().getRejectedCount());
+        } else if (result.isSuccess()) {
             redirectAttributes.addFlashAttribute("success", 
                 "Успешно импортировано " + result.getHistory().getImportedCount() + " организаций");
         } else {
@@ -71,20 +115,209 @@ public class ImportController {
         return "redirect:/import";
     }
 
+    /**
+     * Поставить импорт в очередь (REST).
+     * Возвращает идентификатор задачи сразу, не дожидаясь окончания импорта.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitJob(@RequestParam("file") MultipartFile file,
+                                                         @RequestParam("username") String username,
+                                                         @RequestParam(name = "skipInvalid", defaultValue = "false") boolean skipInvalid,
+                                                         @RequestParam(name = "force", defaultValue = "false") boolean force) {
+        Map<String, Object> response = new HashMap<>();
+        if (file.isEmpty() || username == null || username.trim().isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Файл и имя пользователя обязательны");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            ImportJob job = importJobService.submit(file, username, skipInvalid, force);
+            response.put("success", true);
+            response.put("jobId", job.getId());
+            response.put("topic", "/topic/import-jobs/" + job.getId());
+            return ResponseEntity.accepted().body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Ошибка сохранения файла: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Текущий статус задачи импорта.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ImportJob> getJob(@PathVariable String jobId) {
+        return importJobService.getJob(jobId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Отклонённые строки импорта (режим пропуска невалидных строк), постранично.
+     */
+    @GetMapping("/history/{historyId}/errors")
+    public ResponseEntity<Map<String, Object>> getRowErrors(@PathVariable Long historyId,
+                                                            @RequestParam(name = "page", defaultValue = "0") int page,
+                                                            @RequestParam(name = "size", defaultValue = "100") int size) {
+        int safePage = Math.max(page, 0);
+        int safeSize = Math.min(Math.max(size, 1), 1000);
+
+        List<Map<String, Object>> errors = new ArrayList<>();
+        for (ImportRowError rowError : importService.getRowErrors(historyId, safePage, safeSize)) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("rowNumber", rowError.getRowNumber());
+            item.put("message", rowError.getErrorMessage());
+            errors.add(item);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("historyId", historyId);
+        response.put("page", safePage);
+        response.put("size", safeSize);
+        response.put("total", importService.countRowErrors(historyId));
+        response.put("errors", errors);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Скачивание файла импорта из MinIO.
+     * Содержимое копируется из MinIO прямо в ответ, не загружаясь в память целиком.
+     * 
+     * Поддерживаются условные запросы (If-None-Match, If-Modified-Since) по ETag
+     * и времени изменения объекта в MinIO и докачка одним диапазоном Range
+     * (с проверкой If-Range). Несколько диапазонов в одном запросе не
+     * поддерживаются: в этом случае отдаётся весь файл.
+     * 
+     * Файл, сжатый при загрузке, отдаётся клиентам с Accept-Encoding: gzip
+     * как есть (Content-Encoding: gzip, диапазоны - по сжатым байтам),
+     * остальным - распакованным на лету.
      */
     @GetMapping("/download/{objectName}")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable String objectName) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(@PathVariable String objectName,
+                                                              @RequestHeader(name = HttpHeaders.RANGE, required = false) String rangeHeader,
+                                                              @RequestHeader(name = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                                                              @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                              WebRequest webRequest) {
+        MinioService.StoredFileInfo info;
         try {
-            byte[] content = distributedTransactionService.downloadImportFile(objectName);
-            
-            return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + objectName + "\"")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(content);
+            info = distributedTransactionService.statImportFile(objectName);
         } catch (MinioService.MinioDownloadException e) {
             return ResponseEntity.notFound().build();
         }
+
+        // Представление ответа: сжатое (как хранится) или исходное; у каждого свой ETag
+        boolean gzipEncoded = info.isCompressed() && acceptsGzip(acceptEncoding);
+        String etag = gzipEncoded ? "\"" + info.getEtag() + "-gzip\"" : "\"" + info.getEtag() + "\"";
+        long size = gzipEncoded ? info.getSize() : info.getContentLength();
+
+        if (webRequest.checkNotModified(etag, info.getLastModified())) {
+            // 304 Not Modified уже выставлен, тело не нужно
+            return null;
+        }
+
+        HttpRange range = null;
+        if (rangeHeader != null && size >= 0 && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    range = ranges.get(0);
+                }
+            } catch (IllegalArgumentException e) {
+                // Некорректный заголовок Range игнорируется
+            }
+        }
+
+        try {
+            if (range == null) {
+                InputStream content = gzipEncoded
+                    ? distributedTransactionService.openStoredImportFile(info, 0, size)
+                    : distributedTransactionService.openImportFile(objectName);
+                ResponseEntity.BodyBuilder response = downloadHeaders(HttpStatus.OK, objectName, etag, info, gzipEncoded);
+                if (size >= 0) {
+                    response.contentLength(size);
+                }
+                return response.body(streamBody(content));
+            }
+
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(size);
+                end = range.getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                    .build();
+            }
+            long length = end - start + 1;
+            InputStream content = gzipEncoded
+                ? distributedTransactionService.openStoredImportFile(info, start, length)
+                : distributedTransactionService.openImportFile(info, start, length);
+            return downloadHeaders(HttpStatus.PARTIAL_CONTENT, objectName, etag, info, gzipEncoded)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size)
+                .contentLength(length)
+                .body(streamBody(content));
+        } catch (MinioService.MinioDownloadException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private ResponseEntity.BodyBuilder downloadHeaders(HttpStatus status, String objectName, String etag,
+                                                       MinioService.StoredFileInfo info, boolean gzipEncoded) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + objectName + "\"")
+            .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+            .eTag(etag)
+            .lastModified(info.getLastModified())
+            .cacheControl(CacheControl.noCache())
+            .contentType(MediaType.APPLICATION_JSON);
+        if (info.isCompressed()) {
+            response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (gzipEncoded) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response;
+    }
+
+    /**
+     * Клиент принимает gzip: в Accept-Encoding есть gzip (или *) без q=0.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim().replace(" ", "");
+                if (param.matches("q=0(\\.0{0,3})?")) {
+                    rejected = true;
+                }
+            }
+            if (!rejected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private StreamingResponseBody streamBody(InputStream content) {
+        return outputStream -> {
+            try (InputStream in = content) {
+                in.transferTo(outputStream);
+            }
+        };
     }
 }
@@ -0,0 +1,160 @@
+package org.itmo.lab3.controller;
+
+import org.itmo.lab3.dto.OrganizationTableDto;
+import org.itmo.lab3.model.Address;
+import org.itmo.lab3.model.Coordinates;
+import org.itmo.lab3.service.OrganizationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST контроллер подбора существующих адресов и координат для формы организации
+ * и пространственных запросов.
+ *
+ * Эндпоинты:
+ * - GET /api/lookup/addresses?q=&after=&size= - адреса по префиксу улицы или индекса;
+ *   продолжение - с after из поля next предыдущего ответа
+ * - GET /api/lookup/coordinates?x=&y=&size= - ближайшие к точке координаты
+ * - GET /api/lookup/coordinates?page=&size= - координаты постранично (без x и y)
+ * - GET /api/lookup/coordinates/within?minX=&minY=&maxX=&maxY=&size= - координаты в прямоугольнике
+ * - GET /api/lookup/organizations/within?minX=&minY=&maxX=&maxY=&page=&size= - организации в прямоугольнике
+ *
+ * Форма запрашивает варианты по мере ввода вместо загрузки таблиц целиком.
+ */
+@RestController
+@RequestMapping("/api/lookup")
+public class LookupController {
+
+    private static final int MAX_SIZE = 100;
+
+    private final OrganizationService organizationService;
+
+    @Autowired
+    public LookupController(OrganizationService organizationService) {
+        this.organizationService = organizationService;
+    }
+
+    @GetMapping("/addresses")
+    public ResponseEntity<Map<String, Object>> findAddresses(@RequestParam(name = "q", required = false) String prefix,
+                                                             @RequestParam(name = "after", required = false) Long after,
+                                                             @RequestParam(name = "size", defaultValue = "20") int size) {
+        int safeSize = Math.min(Math.max(size, 1), MAX_SIZE);
+
+        List<Address> found = organizationService.findAddressesForLookup(prefix, after, safeSize);
+        boolean hasNext = found.size() > safeSize;
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Address address : found.subList(0, Math.min(found.size(), safeSize))) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", address.getId());
+            item.put("street", address.getStreet());
+            item.put("zipCode", address.getZipCode());
+            items.add(item);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("size", safeSize);
+        response.put("hasNext", hasNext);
+        response.put("next", hasNext ? items.get(items.size() - 1).get("id") : null);
+        response.put("items", items);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/coordinates")
+    public ResponseEntity<Map<String, Object>> findCoordinates(@RequestParam(name = "x", required = false) Double x,
+                                                               @RequestParam(name = "y", required = false) Double y,
+                                                               @RequestParam(name = "page", defaultValue = "0") int page,
+                                                               @RequestParam(name = "size", defaultValue = "20") int size) {
+        int safePage = Math.max(page, 0);
+        int safeSize = Math.min(Math.max(size, 1), MAX_SIZE);
+
+        List<Coordinates> found;
+        boolean hasNext;
+        if (x != null && y != null) {
+            // Ближайшие соседи: одна «страница» из size точек
+            found = organizationService.findNearestCoordinates(x, y, safeSize);
+            hasNext = false;
+        } else {
+            found = organizationService.findCoordinatesForLookup(safePage, safeSize);
+            hasNext = found.size() > safeSize;
+            found = found.subList(0, Math.min(found.size(), safeSize));
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Coordinates coordinates : found) {
+            items.add(toItem(coordinates));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("page", safePage);
+        response.put("size", safeSize);
+        response.put("hasNext", hasNext);
+        response.put("items", items);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/coordinates/within")
+    public ResponseEntity<Map<String, Object>> findCoordinatesWithin(@RequestParam double minX,
+                                                                     @RequestParam double minY,
+                                                                     @RequestParam double maxX,
+                                                                     @RequestParam double maxY,
+                                                                     @RequestParam(name = "size", defaultValue = "20") int size) {
+        int safeSize = Math.min(Math.max(size, 1), MAX_SIZE);
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Coordinates coordinates : organizationService.findCoordinatesWithin(minX, minY, maxX, maxY, safeSize)) {
+            items.add(toItem(coordinates));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("size", safeSize);
+        response.put("items", items);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/organizations/within")
+    public ResponseEntity<Map<String, Object>> findOrganizationsWithin(@RequestParam double minX,
+                                                                       @RequestParam double minY,
+                                                                       @RequestParam double maxX,
+                                                                       @RequestParam double maxY,
+                                                                       @RequestParam(name = "page", defaultValue = "0") int page,
+                                                                       @RequestParam(name = "size", defaultValue = "20") int size) {
+        int safePage = Math.max(page, 0);
+        int safeSize = Math.min(Math.max(size, 1), MAX_SIZE);
+
+        List<OrganizationTableDto> found = organizationService.findOrganizationsWithin(
+                minX, minY, maxX, maxY, safePage, safeSize);
+        boolean hasNext = found.size() > safeSize;
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (OrganizationTableDto row : found.subList(0, Math.min(found.size(), safeSize))) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", row.getId());
+            item.put("name", row.getName());
+            item.put("x", row.getCoordX());
+            item.put("y", row.getCoordY());
+            item.put("rating", row.getRating());
+            item.put("type", row.getType());
+            items.add(item);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("page", safePage);
+        response.put("size", safeSize);
+        response.put("hasNext", hasNext);
+        response.put("items", items);
+        return ResponseEntity.ok(response);
+    }
+
+    private static Map<String, Object> toItem(Coordinates coordinates) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("id", coordinates.getId());
+        item.put("x", coordinates.getX());
+        item.put("y", coordinates.getY());
+        return item;
+    }
+}
@@ -1,9 +1,14 @@
 package org.itmo.lab3.controller;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.itmo.lab3.dto.OrganizationTableDto;
 import org.itmo.lab3.model.Coordinates;
 import org.itmo.lab3.model.Organization;
 import org.itmo.lab3.service.OrganizationService;
+import org.itmo.lab3.util.CountStrategy;
+import org.itmo.lab3.util.KeysetCursor;
+import org.itmo.lab3.util.KeysetPage;
+import org.itmo.lab3.util.KeysetPageRequest;
 import org.itmo.lab3.util.Page;
 import org.itmo.lab3.util.PageRequest;
 import org.itmo.lab3.util.Sort;
@@ -17,7 +22,6 @@ import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
 
 @Controller
 @RequestMapping("/")
@@ -43,7 +47,15 @@ public class OrganizationController {
                         @RequestParam(name = "sort", required = false) String sort,
                         @RequestParam(name = "order", required = false) String order,
                         @RequestParam(name = "filter", required = false) String filter,
+                        @RequestParam(name = "keyset", defaultValue = "false") boolean keyset,
+                        @RequestParam(name = "cursor", required = false) String cursor,
+                        @RequestParam(name = "count", required = false) String count,
                         Model model) {
+        // Keyset-режим для полного списка: переход по курсору без OFFSET
+        if ((keyset || cursor != null) && (filter == null || filter.isEmpty())) {
+            return keysetIndex(size, sort, order, cursor, model);
+        }
+
         PageRequest pageRequest;
         if (sort != null && !sort.isEmpty()) {
             Sort.Direction direction = "desc".equalsIgnoreCase(order) ? Sort.Direction.DESC : Sort.Direction.ASC;
@@ -53,17 +65,13 @@ public class OrganizationController {
         } else {
             pageRequest = PageRequest.of(page, size);
         }
+        pageRequest = pageRequest.withCountStrategy(CountStrategy.fromName(count));
 
-        Page<Organization> organizationsPage;
+        Page<OrganizationTableDto> organizationsPage;
         if (filter != null && !filter.isEmpty()) {
-            List<Organization> filtered = organizationService.findOrganizationsByName(filter);
-            List<Organization> sorted = sortOrganizations(filtered, sort, order);
-            int start = page * size;
-            int end = Math.min(start + size, sorted.size());
-            List<Organization> pageContent = start < sorted.size() ? sorted.subList(start, end) : java.util.Collections.emptyList();
-            organizationsPage = new org.itmo.lab3.util.PageImpl<>(pageContent, pageRequest, sorted.size());
+            organizationsPage = organizationService.findOrganizationTableByName(filter, pageRequest);
         } else {
-            organizationsPage = organizationService.getAllOrganizations(pageRequest);
+            organizationsPage = organizationService.getOrganizationTable(pageRequest);
         }
 
         model.addAttribute("organizationsList", organizationsPage.getContent());
@@ -73,31 +81,48 @@ public class OrganizationController {
         model.addAttribute("sort", sort);
         model.addAttribute("order", order);
         model.addAttribute("filter", filter);
+        model.addAttribute("count", count);
         return "index";
     }
 
-    private List<Organization> sortOrganizations(List<Organization> source, String sort, String order) {
-        if (sort == null || sort.isEmpty()) {
-            return source;
-        }
-        java.util.Comparator<Organization> comparator;
-        switch (sort) {
-            case "name" -> comparator = java.util.Comparator.comparing(Organization::getName, java.util.Comparator.nullsLast(String::compareToIgnoreCase));
-            case "type" -> comparator = java.util.Comparator.comparing(o -> o.getType() != null ? o.getType().name() : null, java.util.Comparator.nullsLast(String::compareToIgnoreCase));
-            case "creationDate" -> comparator = java.util.Comparator.comparing(Organization::getCreationDate, java.util.Comparator.nullsLast(java.time.LocalDate::compareTo));
-            case "rating" -> comparator = java.util.Comparator.comparing(Organization::getRating, java.util.Comparator.nullsLast(Double::compareTo));
-            case "annualTurnover" -> comparator = java.util.Comparator.comparing(Organization::getAnnualTurnover, java.util.Comparator.nullsLast(Long::compareTo));
-            case "employeesCount" -> comparator = java.util.Comparator.comparing(Organization::getEmployeesCount, java.util.Comparator.nullsLast(Integer::compareTo));
-            default -> comparator = null;
-        }
-        if (comparator == null) {
-            return source;
-        }
-        if ("desc".equalsIgnoreCase(order)) {
-            comparator = comparator.reversed();
-        }
-        return source.stream().sorted(comparator)
-                .collect(java.util.stream.Collectors.toList());
+    private String keysetIndex(int size, String sort, String order, String cursor, Model model) {
+        // Неподдерживаемая сортировка - порядок по id, некорректный размер - по умолчанию
+        if (size < 1) {
+            size = 10;
+        }
+        if (sort != null && !organizationService.supportsKeysetSort(sort)) {
+            sort = null;
+            order = null;
+        }
+        Sort.Order sortOrder = null;
+        if (sort != null) {
+            sortOrder = "desc".equalsIgnoreCase(order) ? Sort.Order.desc(sort) : Sort.Order.asc(sort);
+        }
+        KeysetCursor position = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                position = KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                // Испорченный курсор - показываем первую страницу
+                position = null;
+            }
+        }
+
+        KeysetPage<OrganizationTableDto> organizationsPage;
+        try {
+            organizationsPage = organizationService.getOrganizationTable(KeysetPageRequest.of(size, sortOrder, position));
+        } catch (IllegalArgumentException e) {
+            // Значение курсора не подходит к столбцу - показываем первую страницу
+            organizationsPage = organizationService.getOrganizationTable(KeysetPageRequest.first(size, sortOrder));
+        }
+
+        model.addAttribute("organizationsList", organizationsPage.getContent());
+        model.addAttribute("keysetPage", organizationsPage);
+        model.addAttribute("keyset", true);
+        model.addAttribute("pageSize", size);
+        model.addAttribute("sort", sort);
+        model.addAttribute("order", order);
+        return "index";
     }
 
     @GetMapping("/view/{id}")
@@ -119,8 +144,6 @@ public class OrganizationController {
     @GetMapping("/create")
     public String showCreateForm(Model model) {
         model.addAttribute("organization", new Organization());
-        model.addAttribute("existingAddresses", organizationService.getAllAddresses());
-        model.addAttribute("existingCoordinates", organizationService.getAllCoordinates());
         return "form";
     }
 
@@ -207,8 +230,6 @@ public class OrganizationController {
         }
         
         if (result.hasErrors()) {
-            model.addAttribute("existingAddresses", organizationService.getAllAddresses());
-            model.addAttribute("existingCoordinates", organizationService.getAllCoordinates());
             return "form";
         }
         
@@ -218,8 +239,6 @@ public class OrganizationController {
             return "redirect:/";
         } catch (Exception e) {
             model.addAttribute("error", "Ошибка при создании организации: " + e.getMessage());
-            model.addAttribute("existingAddresses", organizationService.getAllAddresses());
-            model.addAttribute("existingCoordinates", organizationService.getAllCoordinates());
             return "form";
         }
     }
@@ -230,8 +249,6 @@ public class OrganizationController {
         return organizationService.getOrganizationById(id)
                 .map(org -> {
                     model.addAttribute("organization", org);
-                    model.addAttribute("existingAddresses", organizationService.getAllAddresses());
-                    model.addAttribute("existingCoordinates", organizationService.getAllCoordinates());
                     return "form";
                 })
                 .orElseGet(() -> {
@@ -323,8 +340,6 @@ public class OrganizationController {
         }
         
         if (result.hasErrors()) {
-            model.addAttribute("existingAddresses", organizationService.getAllAddresses());
-            model.addAttribute("existingCoordinates", organizationService.getAllCoordinates());
             return "form";
         }
         
@@ -335,8 +350,6 @@ public class OrganizationController {
             return "redirect:/";
         } catch (Exception e) {
             model.addAttribute("error", "Ошибка при обновлении организации: " + e.getMessage());
-            model.addAttribute("existingAddresses", organizationService.getAllAddresses());
-            model.addAttribute("existingCoordinates", organizationService.getAllCoordinates());
             return "form";
         }
     }
@@ -1,8 +1,11 @@
 package org.itmo.lab3.controller;
 
+import org.itmo.lab3.dto.OrganizationTableDto;
 import org.itmo.lab3.model.Address;
 import org.itmo.lab3.model.Organization;
 import org.itmo.lab3.service.OrganizationService;
+import org.itmo.lab3.util.Page;
+import org.itmo.lab3.util.PageRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -15,6 +18,8 @@ import java.util.List;
 @RequestMapping("/special")
 public class SpecialOperationsController {
 
+    private static final int SEARCH_PAGE_SIZE = 20;
+
     private final OrganizationService organizationService;
 
     @Autowired
@@ -47,10 +52,15 @@ public class SpecialOperationsController {
      * Вернуть массив объектов, значение поля name которых содержит заданную подстроку
      */
     @PostMapping("/find-by-name-substring")
-    public String findOrganizationsByNameSubstring(@RequestParam String nameSubstring, Model model) {
+    public String findOrganizationsByNameSubstring(@RequestParam String nameSubstring,
+                                                   @RequestParam(name = "page", defaultValue = "0") int page,
+                                                   Model model) {
         try {
-            List<Organization> organizations = organizationService.findOrganizationsByNameSubstring(nameSubstring);
-            model.addAttribute("result", organizations);
+            // Поиск постраничный: результаты ранжируются, наиболее похожие - первыми
+            Page<Organization> organizations = organizationService.searchOrganizationsByName(
+                    nameSubstring, PageRequest.of(Math.max(page, 0), SEARCH_PAGE_SIZE));
+            model.addAttribute("result", organizations.getContent());
+            model.addAttribute("resultPage", organizations);
             model.addAttribute("operation", "findByNameSubstring");
             model.addAttribute("searchValue", nameSubstring);
         } catch (Exception e) {
@@ -81,7 +91,7 @@ public class SpecialOperationsController {
     public String addEmployeeToOrganization(@RequestParam Long organizationId,
                                             RedirectAttributes redirectAttributes) {
         try {
-            Organization organization = organizationService.addEmployeeToOrganization(organizationId);
+            OrganizationTableDto organization = organizationService.addEmployeeToOrganization(organizationId);
             redirectAttributes.addFlashAttribute("message", 
                     "Сотрудник добавлен в организацию " + organization.getName() + 
                     " (ID: " + organization.getId() + "). Текущее количество сотрудников: " + 
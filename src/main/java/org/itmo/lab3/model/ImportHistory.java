@@ -6,17 +6,18 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "import_history")
+@Table(name = "import_history",
+       indexes = @Index(name = "idx_import_history_content_hash", columnList = "content_hash"))
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class ImportHistory {
     
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "import_history_seq")
-    @SequenceGenerator(name = "import_history_seq", sequenceName = "import_history_id_seq", allocationSize = 1)
+    @SequenceGenerator(name = "import_history_seq", sequenceName = "import_history_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "status", nullable = false, length = 50)
-    private String status; // SUCCESS, FAILED
+    private String status; // SUCCESS, PARTIAL, FAILED, IN_PROGRESS
 
     @Column(name = "username", nullable = false, length = 100)
     private String username;
@@ -24,6 +25,9 @@ public class ImportHistory {
     @Column(name = "imported_count")
     private Integer importedCount;
 
+    @Column(name = "rejected_count")
+    private Integer rejectedCount; // Отклонённые строки в режиме пропуска невалидных
+
     @Column(name = "timestamp", nullable = false)
     private LocalDateTime timestamp;
 
@@ -33,6 +37,9 @@ public class ImportHistory {
     @Column(name = "file_object_name", length = 255)
     private String fileObjectName; // Имя файла в MinIO
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 содержимого файла (hex)
+
     @PrePersist
     protected void onCreate() {
         if (timestamp == null) {
@@ -84,6 +91,14 @@ public class ImportHistory {
         this.importedCount = importedCount;
     }
 
+    public Integer getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public void setRejectedCount(Integer rejectedCount) {
+        this.rejectedCount = rejectedCount;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -107,4 +122,12 @@ public class ImportHistory {
     public void setFileObjectName(String fileObjectName) {
         this.fileObjectName = fileObjectName;
     }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
 }
@@ -0,0 +1,70 @@
+package org.itmo.lab3.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Строка файла импорта, отклонённая в режиме пропуска невалидных строк.
+ * Не кэшируется: записей может быть много, читаются они редко.
+ */
+@Entity
+@Table(name = "import_row_errors",
+       indexes = @Index(name = "idx_import_row_errors_history", columnList = "import_history_id, row_number"))
+public class ImportRowError {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "import_row_error_seq")
+    @SequenceGenerator(name = "import_row_error_seq", sequenceName = "import_row_errors_id_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "import_history_id", nullable = false)
+    private ImportHistory importHistory;
+
+    @Column(name = "row_number", nullable = false)
+    private Integer rowNumber; // Номер организации в файле (с единицы)
+
+    @Column(name = "error_message", nullable = false, length = 1000)
+    private String errorMessage;
+
+    public ImportRowError() {
+    }
+
+    public ImportRowError(ImportHistory importHistory, Integer rowNumber, String errorMessage) {
+        this.importHistory = importHistory;
+        this.rowNumber = rowNumber;
+        this.errorMessage = errorMessage;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public ImportHistory getImportHistory() {
+        return importHistory;
+    }
+
+    public void setImportHistory(ImportHistory importHistory) {
+        this.importHistory = importHistory;
+    }
+
+    public Integer getRowNumber() {
+        return rowNumber;
+    }
+
+    public void setRowNumber(Integer rowNumber) {
+        this.rowNumber = rowNumber;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
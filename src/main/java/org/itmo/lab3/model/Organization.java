@@ -9,12 +9,26 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.itmo.lab3.validation.UniqueRating;
 
 @Entity
-@Table(name = "organizations")
+@Table(name = "organizations", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_organizations_name", columnNames = "name"),
+    @UniqueConstraint(name = "uk_organizations_rating", columnNames = "rating")
+})
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedEntityGraph(name = Organization.GRAPH_DETAILS, attributeNodes = {
+    @NamedAttributeNode("coordinates"),
+    @NamedAttributeNode("officialAddress"),
+    @NamedAttributeNode("postalAddress")
+})
 public class Organization {
+    /**
+     * Граф загрузки организации вместе с координатами и адресами
+     * одним запросом (связи объявлены LAZY)
+     */
+    public static final String GRAPH_DETAILS = "Organization.details";
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "org_seq")
-    @SequenceGenerator(name = "org_seq", sequenceName = "organizations_id_seq", allocationSize = 1)
+    @SequenceGenerator(name = "org_seq", sequenceName = "organizations_id_seq", allocationSize = 50)
     @Positive(message = "Значение поля должно быть больше 0")
     @Column(name = "id", nullable = false)
     private Long id;
@@ -27,7 +41,7 @@ public class Organization {
 
     @NotNull(message = "Координаты не могут быть null")
     @Valid
-    @ManyToOne(cascade = CascadeType.PERSIST, fetch = FetchType.EAGER)
+    @ManyToOne(cascade = CascadeType.PERSIST, fetch = FetchType.LAZY)
     @JoinColumn(name = "coordinates_id", nullable = false)
     private Coordinates coordinates;
 
@@ -35,7 +49,7 @@ public class Organization {
     @Column(name = "creation_date", nullable = false)
     private LocalDate creationDate;
 
-    @ManyToOne(cascade = CascadeType.PERSIST, fetch = FetchType.EAGER)
+    @ManyToOne(cascade = CascadeType.PERSIST, fetch = FetchType.LAZY)
     @JoinColumn(name = "official_address_id")
     private Address officialAddress;
 
@@ -61,7 +75,7 @@ public class Organization {
 
     @NotNull(message = "Почтовый адрес не может быть null")
     @Valid
-    @ManyToOne(cascade = CascadeType.PERSIST, fetch = FetchType.EAGER)
+    @ManyToOne(cascade = CascadeType.PERSIST, fetch = FetchType.LAZY)
     @JoinColumn(name = "postal_address_id", nullable = false)
     private Address postalAddress;
 
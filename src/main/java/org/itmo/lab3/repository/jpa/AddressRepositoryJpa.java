@@ -2,11 +2,14 @@ package org.itmo.lab3.repository.jpa;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import org.itmo.lab3.model.Address;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,6 +53,65 @@ public class AddressRepositoryJpa {
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
 
+    /**
+     * Адреса, у которых улица (без учёта регистра) или почтовый индекс
+     * начинаются с prefix; без prefix адреса не ищутся. Порядок - по
+     * lower(street) в сортировке "C" и id, как в индексе idx_addresses_street_lower_id
+     * (V8__address_lookup_keyset): он же обслуживает префиксный LIKE по улице.
+     * 
+     * Вместо OFFSET продолжение начинается после адреса afterId: условие
+     * (lower(street), id) > (...) этого адреса. Если адрес afterId удалён,
+     * продолжения нет. Выбирается limit + 1 строк: лишняя строка означает,
+     * что есть продолжение.
+     *
+     * @param afterId id последнего показанного адреса; null - с начала
+     */
+    @SuppressWarnings("unchecked")
+    public List<Address> findByPrefix(String prefix, Long afterId, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return Collections.emptyList();
+        }
+        StringBuilder sql = new StringBuilder(
+            "SELECT * FROM addresses a " +
+            "WHERE (lower(a.street) COLLATE \"C\" LIKE :streetPrefix ESCAPE '!' " +
+            "OR a.zip_code LIKE :zipPrefix ESCAPE '!')");
+        if (afterId != null) {
+            sql.append(" AND (lower(a.street) COLLATE \"C\", a.id) > " +
+                "(SELECT lower(b.street) COLLATE \"C\", b.id FROM addresses b WHERE b.id = :afterId)");
+        }
+        sql.append(" ORDER BY lower(a.street) COLLATE \"C\", a.id LIMIT :limit");
+
+        String escaped = prefix.trim().replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        Query query = entityManager.createNativeQuery(sql.toString(), Address.class)
+            .setParameter("streetPrefix", escaped.toLowerCase() + "%")
+            .setParameter("zipPrefix", escaped + "%")
+            .setParameter("limit", limit + 1);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Найти адреса с индексами из переданного набора.
+     * Размер набора не должен превышать 1000.
+     */
+    public List<Address> findByZipCodeIn(Collection<String> zipCodes) {
+        TypedQuery<Address> query = entityManager.createQuery(
+            "SELECT a FROM Address a WHERE a.zipCode IN :zipCodes", 
+            Address.class
+        );
+        query.setParameter("zipCodes", zipCodes);
+        return query.getResultList();
+    }
+
+    /**
+     * Ссылка на адрес по ID без загрузки из БД
+     */
+    public Address getReference(Long id) {
+        return entityManager.getReference(Address.class, id);
+    }
+
     @Transactional
     public void deleteById(Long id) {
         Address address = entityManager.find(Address.class, id);
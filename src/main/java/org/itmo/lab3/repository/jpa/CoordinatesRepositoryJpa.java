@@ -2,11 +2,13 @@ package org.itmo.lab3.repository.jpa;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import org.itmo.lab3.model.Coordinates;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -54,6 +56,104 @@ public class CoordinatesRepositoryJpa {
         return query.getResultList();
     }
 
+    /**
+     * Ближайшие к точке (x, y) координаты по евклидову расстоянию, не больше limit.
+     * KNN-поиск по GiST-индексу idx_coordinates_point, без просмотра всей таблицы.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Coordinates> findNearest(double x, double y, int limit) {
+        return entityManager.createNativeQuery(
+            "SELECT * FROM coordinates ORDER BY point(x, y) <-> point(:x, :y) LIMIT :limit",
+            Coordinates.class
+        )
+            .setParameter("x", x)
+            .setParameter("y", y)
+            .setParameter("limit", limit)
+            .getResultList();
+    }
+
+    /**
+     * Координаты внутри прямоугольника (границы включительно), не больше limit, в порядке id.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Coordinates> findWithinBox(double minX, double minY, double maxX, double maxY, int limit) {
+        return entityManager.createNativeQuery(
+            "SELECT * FROM coordinates " +
+            "WHERE point(x, y) <@ box(point(:minX, :minY), point(:maxX, :maxY)) " +
+            "ORDER BY id LIMIT :limit",
+            Coordinates.class
+        )
+            .setParameter("minX", minX)
+            .setParameter("minY", minY)
+            .setParameter("maxX", maxX)
+            .setParameter("maxY", maxY)
+            .setParameter("limit", limit)
+            .getResultList();
+    }
+
+    /**
+     * Ближайшие к (x, y) координаты на расстоянии не больше tolerance.
+     * Используется для устранения дублей, отличающихся погрешностью float.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<Coordinates> findNearestWithin(double x, double y, double tolerance) {
+        List<Coordinates> results = entityManager.createNativeQuery(
+            "SELECT * FROM coordinates " +
+            "WHERE point(x, y) <@ circle(point(:x, :y), :tolerance) " +
+            "ORDER BY point(x, y) <-> point(:x, :y) LIMIT 1",
+            Coordinates.class
+        )
+            .setParameter("x", x)
+            .setParameter("y", y)
+            .setParameter("tolerance", tolerance)
+            .getResultList();
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+    }
+
+    /**
+     * Страница координат в порядке id: limit + 1 строк, лишняя означает продолжение
+     */
+    public List<Coordinates> findPage(int offset, int limit) {
+        TypedQuery<Coordinates> query = entityManager.createQuery(
+            "SELECT c FROM Coordinates c ORDER BY c.id",
+            Coordinates.class
+        );
+        query.setFirstResult(offset);
+        query.setMaxResults(limit + 1);
+        return query.getResultList();
+    }
+
+    /**
+     * Найти координаты по парам (xs[i], ys[i]) одним запросом
+     * (x, y) IN ((?, ?), ...) по индексу idx_coordinates_xy.
+     * Возвращаются только точные совпадения пар, без перекрёстных сочетаний
+     * x и y. Число пар не должно превышать 1000.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Coordinates> findByXAndYPairs(List<Integer> xs, List<Float> ys) {
+        if (xs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder("SELECT * FROM coordinates c WHERE (c.x, c.y) IN (");
+        for (int i = 0; i < xs.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(:x").append(i).append(", :y").append(i).append(')');
+        }
+        sql.append(')');
+        Query query = entityManager.createNativeQuery(sql.toString(), Coordinates.class);
+        for (int i = 0; i < xs.size(); i++) {
+            query.setParameter("x" + i, xs.get(i));
+            query.setParameter("y" + i, ys.get(i));
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Ссылка на координаты по ID без загрузки из БД
+     */
+    public Coordinates getReference(Long id) {
+        return entityManager.getReference(Coordinates.class, id);
+    }
+
     /**
      * Удалить по ID
      */
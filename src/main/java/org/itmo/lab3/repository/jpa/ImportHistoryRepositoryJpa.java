@@ -28,6 +28,29 @@ public class ImportHistoryRepositoryJpa {
         return Optional.ofNullable(importHistory);
     }
 
+    /**
+     * Ссылка на запись истории по ID без загрузки из БД
+     */
+    public ImportHistory getReference(Long id) {
+        return entityManager.getReference(ImportHistory.class, id);
+    }
+
+    /**
+     * Последний успешный импорт файла с данным SHA-256.
+     * PARTIAL не учитывается: отклонённые строки можно импортировать повторно.
+     * Хэши не сбрасываются при удалении организаций: файл, организации которого
+     * удалены, импортируется повторно явно, с параметром force.
+     */
+    public Optional<ImportHistory> findLatestCompletedByContentHash(String contentHash) {
+        List<ImportHistory> results = entityManager.createQuery(
+                "SELECT ih FROM ImportHistory ih WHERE ih.contentHash = :contentHash " +
+                "AND ih.status = 'SUCCESS' ORDER BY ih.timestamp DESC", ImportHistory.class)
+                .setParameter("contentHash", contentHash)
+                .setMaxResults(1)
+                .getResultList();
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+    }
+
     public List<ImportHistory> findAll() {
         return entityManager.createQuery("SELECT ih FROM ImportHistory ih ORDER BY ih.timestamp DESC", ImportHistory.class)
                 .getResultList();
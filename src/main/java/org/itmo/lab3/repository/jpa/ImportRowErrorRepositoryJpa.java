@@ -0,0 +1,44 @@
+package org.itmo.lab3.repository.jpa;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.itmo.lab3.model.ImportRowError;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class ImportRowErrorRepositoryJpa {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ImportRowError save(ImportRowError rowError) {
+        entityManager.persist(rowError);
+        return rowError;
+    }
+
+    /**
+     * Отклонённые строки импорта в порядке номеров строк, постранично
+     */
+    public List<ImportRowError> findByImportHistoryId(Long importHistoryId, int page, int size) {
+        TypedQuery<ImportRowError> query = entityManager.createQuery(
+            "SELECT e FROM ImportRowError e WHERE e.importHistory.id = :historyId ORDER BY e.rowNumber, e.id", 
+            ImportRowError.class
+        );
+        query.setParameter("historyId", importHistoryId);
+        query.setFirstResult(page * size);
+        query.setMaxResults(size);
+        return query.getResultList();
+    }
+
+    public long countByImportHistoryId(Long importHistoryId) {
+        TypedQuery<Long> query = entityManager.createQuery(
+            "SELECT COUNT(e) FROM ImportRowError e WHERE e.importHistory.id = :historyId", 
+            Long.class
+        );
+        query.setParameter("historyId", importHistoryId);
+        return query.getSingleResult();
+    }
+}
@@ -1,23 +1,75 @@
 package org.itmo.lab3.repository.jpa;
 
+import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.itmo.lab3.dto.OrganizationTableDto;
 import org.itmo.lab3.model.Address;
 import org.itmo.lab3.model.Organization;
+import org.itmo.lab3.model.OrganizationType;
+import org.itmo.lab3.util.CountStrategy;
+import org.itmo.lab3.util.KeysetCursor;
+import org.itmo.lab3.util.KeysetPage;
+import org.itmo.lab3.util.KeysetPageRequest;
 import org.itmo.lab3.util.PageRequest;
 import org.itmo.lab3.util.PageImpl;
 import org.itmo.lab3.util.Page;
 import org.itmo.lab3.util.Sort;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Repository
 public class OrganizationRepositoryJpa {
 
+    /**
+     * Максимальное количество параметров в одном IN (...)
+     */
+    private static final int IN_BATCH_SIZE = 1000;
+
+    /**
+     * Пространства ключей advisory-блокировок (см. lockNamesAndRatings)
+     */
+    private static final int LOCK_NAMESPACE_NAME = 1;
+    private static final int LOCK_NAMESPACE_RATING = 2;
+
+    /**
+     * Регион кэша запросов для точных COUNT (см. ehcache.xml)
+     */
+    private static final String COUNT_CACHE_REGION = "organization-counts";
+    private static final String HINT_CACHEABLE = "org.hibernate.cacheable";
+    private static final String HINT_CACHE_REGION = "org.hibernate.cacheRegion";
+    private static final String HINT_LOAD_GRAPH = "jakarta.persistence.loadgraph";
+
+    /**
+     * Проекция строки таблицы главной страницы (см. OrganizationTableDto)
+     */
+    private static final String TABLE_ROW_SELECT =
+        "SELECT new org.itmo.lab3.dto.OrganizationTableDto(o.id, o.name, c.x, c.y, o.creationDate, " +
+        "o.annualTurnover, o.employeesCount, o.rating, o.type) FROM Organization o JOIN o.coordinates c";
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -32,7 +84,8 @@ public class OrganizationRepositoryJpa {
     }
 
     public Optional<Organization> findById(Long id) {
-        Organization organization = entityManager.find(Organization.class, id);
+        Organization organization = entityManager.find(Organization.class, id,
+            Map.of(HINT_LOAD_GRAPH, entityManager.getEntityGraph(Organization.GRAPH_DETAILS)));
         return Optional.ofNullable(organization);
     }
 
@@ -41,29 +94,148 @@ public class OrganizationRepositoryJpa {
             "SELECT o FROM Organization o", 
             Organization.class
         );
-        return query.getResultList();
+        return withDetails(query).getResultList();
     }
 
     public Page<Organization> findAll(PageRequest pageRequest) {
-        // Запрос для данных
         String jpql = "SELECT o FROM Organization o";
         if (pageRequest.getSort() != null && pageRequest.getSort().isSorted()) {
             jpql += " ORDER BY " + buildOrderBy(pageRequest.getSort());
         }
-        
-        TypedQuery<Organization> query = entityManager.createQuery(jpql, Organization.class);
-        query.setFirstResult(pageRequest.getPageNumber() * pageRequest.getPageSize());
-        query.setMaxResults(pageRequest.getPageSize());
-        List<Organization> content = query.getResultList();
-        
-        // Запрос для подсчёта общего количества
-        TypedQuery<Long> countQuery = entityManager.createQuery(
-            "SELECT COUNT(o) FROM Organization o", 
-            Long.class
-        );
-        Long total = countQuery.getSingleResult();
-        
-        return new PageImpl<>(content, pageRequest, total);
+        TypedQuery<Organization> query = withDetails(entityManager.createQuery(jpql, Organization.class));
+        return page(query, pageRequest,
+            () -> cachedCount(entityManager.createQuery("SELECT COUNT(o) FROM Organization o", Long.class)),
+            this::estimateTableRows);
+    }
+
+    /**
+     * Строки таблицы организаций для главной страницы.
+     * 
+     * Выбираются конструктором OrganizationTableDto только нужные столбцы:
+     * сущности не загружаются в контекст персистентности, нет гидратации
+     * связей и проверки изменений при закрытии транзакции.
+     */
+    public Page<OrganizationTableDto> findTableRows(PageRequest pageRequest) {
+        String jpql = TABLE_ROW_SELECT;
+        if (pageRequest.getSort() != null && pageRequest.getSort().isSorted()) {
+            jpql += " ORDER BY " + buildOrderBy(pageRequest.getSort());
+        }
+        TypedQuery<OrganizationTableDto> query = entityManager.createQuery(jpql, OrganizationTableDto.class);
+        return page(query, pageRequest,
+            () -> cachedCount(entityManager.createQuery("SELECT COUNT(o) FROM Organization o", Long.class)),
+            this::estimateTableRows);
+    }
+
+    /**
+     * Строки таблицы организаций, координаты которых лежат в прямоугольнике
+     * (границы включительно), в порядке id.
+     * 
+     * Идентификаторы выбираются нативным запросом по GiST-индексу
+     * idx_coordinates_point, затем строки - проекцией OrganizationTableDto.
+     * Выбирается limit + 1 строк: лишняя означает, что есть продолжение.
+     */
+    @SuppressWarnings("unchecked")
+    public List<OrganizationTableDto> findTableRowsWithinBox(double minX, double minY, double maxX, double maxY,
+                                                             int offset, int limit) {
+        List<Number> ids = entityManager.createNativeQuery(
+            "SELECT o.id FROM organizations o JOIN coordinates c ON c.id = o.coordinates_id " +
+            "WHERE point(c.x, c.y) <@ box(point(:minX, :minY), point(:maxX, :maxY)) " +
+            "ORDER BY o.id LIMIT :limit OFFSET :offset"
+        )
+            .setParameter("minX", minX)
+            .setParameter("minY", minY)
+            .setParameter("maxX", maxX)
+            .setParameter("maxY", maxY)
+            .setParameter("limit", limit + 1)
+            .setParameter("offset", offset)
+            .getResultList();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> organizationIds = new ArrayList<>(ids.size());
+        for (Number id : ids) {
+            organizationIds.add(id.longValue());
+        }
+        return entityManager.createQuery(
+            TABLE_ROW_SELECT + " WHERE o.id IN :ids ORDER BY o.id", OrganizationTableDto.class
+        ).setParameter("ids", organizationIds).getResultList();
+    }
+
+    /**
+     * Поддерживается ли сортировка по полю в режиме keyset-пагинации
+     */
+    public boolean supportsKeysetSort(String property) {
+        for (KeysetColumn column : KeysetColumn.values()) {
+            if (column.property.equals(property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Строки таблицы организаций в режиме keyset-пагинации.
+     * 
+     * Вместо OFFSET условие (столбец, id) > (значение, id) из курсора отсекает
+     * уже показанные строки, поэтому стоимость запроса не зависит от глубины
+     * страницы. Запрашивается на одну строку больше размера страницы, чтобы
+     * узнать, есть ли страница дальше.
+     * 
+     * @throws IllegalArgumentException если сортировка по неподдерживаемому полю
+     */
+    public KeysetPage<OrganizationTableDto> findTableRows(KeysetPageRequest pageRequest) {
+        Sort.Order order = pageRequest.getOrder();
+        KeysetColumn column = KeysetColumn.of(order.getProperty());
+        KeysetCursor cursor = pageRequest.getCursor();
+        boolean backward = cursor != null && cursor.isBackward();
+        // При переходе назад строки выбираются в обратном порядке и затем разворачиваются
+        boolean descending = (order.getDirection() == Sort.Direction.DESC) != backward;
+        String direction = descending ? "DESC" : "ASC";
+
+        StringBuilder jpql = new StringBuilder(TABLE_ROW_SELECT);
+        if (cursor != null) {
+            String comparison = descending ? "<" : ">";
+            if (column == KeysetColumn.ID) {
+                jpql.append(" WHERE o.id ").append(comparison).append(" :lastId");
+            } else {
+                // Сравнение строк (row value): PostgreSQL сводит его к одной границе
+                // диапазона по индексу (столбец, id), а не к объединению двух условий
+                jpql.append(" WHERE (o.").append(column.property).append(", o.id) ").append(comparison)
+                    .append(" (:lastValue, :lastId)");
+            }
+        }
+        jpql.append(" ORDER BY ");
+        if (column != KeysetColumn.ID) {
+            jpql.append("o.").append(column.property).append(' ').append(direction).append(", ");
+        }
+        jpql.append("o.id ").append(direction);
+
+        TypedQuery<OrganizationTableDto> query = entityManager.createQuery(jpql.toString(), OrganizationTableDto.class);
+        if (cursor != null) {
+            query.setParameter("lastId", cursor.getId());
+            if (column != KeysetColumn.ID) {
+                query.setParameter("lastValue", column.parse(cursor.getValue()));
+            }
+        }
+        query.setMaxResults(pageRequest.getPageSize() + 1);
+        List<OrganizationTableDto> rows = new ArrayList<>(query.getResultList());
+
+        boolean hasMore = rows.size() > pageRequest.getPageSize();
+        if (hasMore) {
+            rows.remove(rows.size() - 1);
+        }
+        if (backward) {
+            Collections.reverse(rows);
+        }
+        if (rows.isEmpty()) {
+            return new KeysetPage<>(rows, pageRequest, null, null);
+        }
+
+        boolean hasNext = backward || hasMore;
+        boolean hasPrevious = backward ? hasMore : cursor != null;
+        KeysetCursor next = hasNext ? column.cursor(order, rows.get(rows.size() - 1), false) : null;
+        KeysetCursor previous = hasPrevious ? column.cursor(order, rows.get(0), true) : null;
+        return new KeysetPage<>(rows, pageRequest, next, previous);
     }
 
     public List<Organization> findByNameIgnoreCase(String name) {
@@ -72,16 +244,75 @@ public class OrganizationRepositoryJpa {
             Organization.class
         );
         query.setParameter("name", name);
-        return query.getResultList();
+        return withDetails(query).getResultList();
+    }
+
+    /**
+     * Строки таблицы организаций с названием, совпадающим без учёта регистра.
+     * Фильтр, сортировка и LIMIT/OFFSET выполняются одним запросом в БД.
+     */
+    public Page<OrganizationTableDto> findTableRowsByName(String name, PageRequest pageRequest) {
+        String jpql = TABLE_ROW_SELECT + " WHERE LOWER(o.name) = LOWER(:name)";
+        // id в конце делает порядок однозначным, иначе строки с равным ключом
+        // могут переходить между страницами
+        if (pageRequest.getSort() != null && pageRequest.getSort().isSorted()) {
+            jpql += " ORDER BY " + buildOrderBy(pageRequest.getSort()) + ", o.id ASC";
+        } else {
+            jpql += " ORDER BY o.id ASC";
+        }
+        TypedQuery<OrganizationTableDto> query = entityManager.createQuery(jpql, OrganizationTableDto.class);
+        query.setParameter("name", name);
+        Supplier<Long> count = () -> cachedCount(entityManager.createQuery(
+                "SELECT COUNT(o) FROM Organization o WHERE LOWER(o.name) = LOWER(:name)", Long.class)
+            .setParameter("name", name));
+        // Строку фильтра нельзя подставить в EXPLAIN, оценкой служит точный подсчёт
+        return page(query, pageRequest, count, count);
     }
 
     public List<Organization> findByNameContainingIgnoreCase(String nameSubstring) {
         TypedQuery<Organization> query = entityManager.createQuery(
-            "SELECT o FROM Organization o WHERE LOWER(o.name) LIKE LOWER(:substring)", 
+            "SELECT o FROM Organization o WHERE o.name ILIKE :pattern ESCAPE '!'", 
             Organization.class
         );
-        query.setParameter("substring", "%" + nameSubstring + "%");
-        return query.getResultList();
+        query.setParameter("pattern", containsPattern(nameSubstring));
+        return withDetails(query).getResultList();
+    }
+
+    /**
+     * Поиск организаций по подстроке названия без учёта регистра.
+     * 
+     * ILIKE '%подстрока%' обслуживается GIN-индексом organizations_name_trgm_idx
+     * (миграция V4__name_search). Результаты ранжируются по триграммной похожести названия
+     * на строку поиска, если установлен pg_trgm, иначе - по позиции вхождения
+     * и длине названия. При равном ранге порядок - по id.
+     * 
+     * @param similarityRanking ранжировать через similarity() из pg_trgm
+     */
+    public Page<Organization> searchByName(String text, boolean similarityRanking, PageRequest pageRequest) {
+        String rank = similarityRanking
+            ? "function('similarity', o.name, :text) DESC"
+            : "locate(lower(:text), lower(o.name)) ASC, length(o.name) ASC";
+        TypedQuery<Organization> query = entityManager.createQuery(
+            "SELECT o FROM Organization o WHERE o.name ILIKE :pattern ESCAPE '!' ORDER BY " + rank + ", o.id ASC",
+            Organization.class
+        );
+        query.setParameter("pattern", containsPattern(text));
+        query.setParameter("text", text);
+        withDetails(query);
+        Supplier<Long> count = () -> cachedCount(entityManager.createQuery(
+                "SELECT COUNT(o) FROM Organization o WHERE o.name ILIKE :pattern ESCAPE '!'", Long.class)
+            .setParameter("pattern", containsPattern(text)));
+        return page(query, pageRequest, count, count);
+    }
+
+    /**
+     * Установлено ли в БД расширение pg_trgm
+     */
+    public boolean isTrigramSearchAvailable() {
+        Number installed = (Number) entityManager.createNativeQuery(
+            "SELECT count(*) FROM pg_extension WHERE extname = 'pg_trgm'"
+        ).getSingleResult();
+        return installed.longValue() > 0;
     }
 
     public List<Organization> findByRating(Double rating) {
@@ -90,7 +321,7 @@ public class OrganizationRepositoryJpa {
             Organization.class
         );
         query.setParameter("rating", rating);
-        return query.getResultList();
+        return withDetails(query).getResultList();
     }
 
     public long countByRating(Double rating) {
@@ -107,21 +338,15 @@ public class OrganizationRepositoryJpa {
         if (pageRequest.getSort() != null && pageRequest.getSort().isSorted()) {
             jpql += " ORDER BY " + buildOrderBy(pageRequest.getSort());
         }
-        
         TypedQuery<Organization> query = entityManager.createQuery(jpql, Organization.class);
         query.setParameter("maxEmployees", maxEmployees);
-        query.setFirstResult(pageRequest.getPageNumber() * pageRequest.getPageSize());
-        query.setMaxResults(pageRequest.getPageSize());
-        List<Organization> content = query.getResultList();
-
-        TypedQuery<Long> countQuery = entityManager.createQuery(
-            "SELECT COUNT(o) FROM Organization o WHERE o.employeesCount < :maxEmployees", 
-            Long.class
-        );
-        countQuery.setParameter("maxEmployees", maxEmployees);
-        Long total = countQuery.getSingleResult();
-        
-        return new PageImpl<>(content, pageRequest, total);
+        withDetails(query);
+        return page(query, pageRequest,
+            () -> cachedCount(entityManager.createQuery(
+                    "SELECT COUNT(o) FROM Organization o WHERE o.employeesCount < :maxEmployees", Long.class)
+                .setParameter("maxEmployees", maxEmployees)),
+            // Число подставляется в текст: EXPLAIN не принимает параметры запроса
+            () -> estimatePlanRows("SELECT 1 FROM organizations WHERE employees_count < " + maxEmployees.longValue()));
     }
 
     public List<Address> findDistinctPostalAddresses() {
@@ -132,6 +357,77 @@ public class OrganizationRepositoryJpa {
         return query.getResultList();
     }
 
+    /**
+     * Атомарно увеличить число сотрудников организации на delta.
+     * 
+     * Один UPDATE ... RETURNING вместо чтения, изменения в Java и merge:
+     * приращение выполняется под блокировкой строки, поэтому параллельные
+     * вызовы не теряют обновлений и не требуют повторов. Из RETURNING
+     * сразу собирается строка таблицы (координаты - через UPDATE ... FROM).
+     * 
+     * Запрос идёт мимо контекста персистентности: запись организации в L2
+     * кэше и кэш COUNT сбрасываются (см. evictOrganizations), а экземпляр,
+     * уже загруженный в текущий контекст, не обновляется.
+     * 
+     * @return строка таблицы с новым значением, либо пусто, если организации нет
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Optional<OrganizationTableDto> incrementEmployeesCount(Long id, int delta) {
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(
+            "UPDATE organizations o SET employees_count = o.employees_count + :delta " +
+            "FROM coordinates c WHERE o.id = :id AND c.id = o.coordinates_id " +
+            "RETURNING o.id, o.name, c.x, c.y, o.creation_date, o.annual_turnover, " +
+            "o.employees_count, o.rating, o.type"
+        ).unwrap(NativeQuery.class);
+        query.addSynchronizedEntityClass(Organization.class)
+            .addScalar("id", Long.class)
+            .addScalar("name", String.class)
+            .addScalar("x", Integer.class)
+            .addScalar("y", Float.class)
+            .addScalar("creation_date", LocalDate.class)
+            .addScalar("annual_turnover", Long.class)
+            .addScalar("employees_count", Integer.class)
+            .addScalar("rating", Double.class)
+            .addScalar("type", String.class)
+            .setParameter("delta", delta)
+            .setParameter("id", id);
+        List<Object[]> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        evictOrganizations(Collections.singleton(id));
+        Object[] row = rows.get(0);
+        return Optional.of(new OrganizationTableDto((Long) row[0], (String) row[1], (Integer) row[2],
+                (Float) row[3], (LocalDate) row[4], (Long) row[5], (Integer) row[6], (Double) row[7],
+                OrganizationType.valueOf((String) row[8])));
+    }
+
+    /**
+     * Удалить все организации с заданным рейтингом одним DELETE ... RETURNING id.
+     * 
+     * Сущности не загружаются и не удаляются по одной; связанные координаты
+     * и адреса не затрагиваются (каскадного удаления у связей нет).
+     * Удалённые записи сбрасываются из L2 кэша (см. evictOrganizations).
+     * 
+     * @return идентификаторы удалённых организаций
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<Long> deleteByRatingReturningIds(Double rating) {
+        NativeQuery<Long> query = entityManager.createNativeQuery(
+            "DELETE FROM organizations WHERE rating = :rating RETURNING id"
+        ).unwrap(NativeQuery.class);
+        List<Long> ids = query.addSynchronizedEntityClass(Organization.class)
+            .addScalar("id", Long.class)
+            .setParameter("rating", rating)
+            .getResultList();
+        if (!ids.isEmpty()) {
+            evictOrganizations(ids);
+        }
+        return ids;
+    }
+
     @Transactional
     public int deleteByRatingLessThan(Integer minRating) {
         return entityManager.createQuery(
@@ -180,6 +476,14 @@ public class OrganizationRepositoryJpa {
         entityManager.flush();
     }
 
+    /**
+     * Очистить контекст персистентности (используется при пакетной обработке)
+     */
+    @Transactional
+    public void clear() {
+        entityManager.clear();
+    }
+
     @Transactional
     public void deleteAll() {
         entityManager.createQuery("DELETE FROM Organization o").executeUpdate();
@@ -204,18 +508,286 @@ public class OrganizationRepositoryJpa {
         return query.getSingleResult() > 0;
     }
 
+    /**
+     * Найти имена из переданного набора, которые уже есть в БД.
+     * Значения проверяются порциями по IN_BATCH_SIZE одним запросом на порцию.
+     */
+    public Set<String> findExistingNames(Collection<String> names) {
+        Set<String> existing = new HashSet<>();
+        for (List<String> batch : partition(names)) {
+            TypedQuery<String> query = entityManager.createQuery(
+                "SELECT o.name FROM Organization o WHERE o.name IN :names", 
+                String.class
+            );
+            query.setParameter("names", batch);
+            existing.addAll(query.getResultList());
+        }
+        return existing;
+    }
+
+    /**
+     * Найти рейтинги из переданного набора, которые уже есть в БД.
+     * Значения проверяются порциями по IN_BATCH_SIZE одним запросом на порцию.
+     */
+    public Set<Double> findExistingRatings(Collection<Double> ratings) {
+        Set<Double> existing = new HashSet<>();
+        for (List<Double> batch : partition(ratings)) {
+            TypedQuery<Double> query = entityManager.createQuery(
+                "SELECT o.rating FROM Organization o WHERE o.rating IN :ratings", 
+                Double.class
+            );
+            query.setParameter("ratings", batch);
+            existing.addAll(query.getResultList());
+        }
+        return existing;
+    }
+
+    /**
+     * Взять транзакционные advisory-блокировки PostgreSQL на имена и рейтинги.
+     * 
+     * Ключ блокировки - пространство (имя/рейтинг) в старших 32 битах и хэш
+     * значения в младших. Ключи берутся в порядке возрастания, поэтому две
+     * транзакции с пересекающимися наборами не попадают во взаимоблокировку.
+     * Блокировки освобождаются при завершении транзакции; коллизия хэшей
+     * приводит только к лишнему ожиданию. Уникальность гарантируют ограничения
+     * uk_organizations_name и uk_organizations_rating, блокировки лишь делают
+     * точной предварительную проверку findExistingNames/findExistingRatings.
+     * 
+     * @return количество взятых блокировок
+     */
+    public int lockNamesAndRatings(Collection<String> names, Collection<Double> ratings) {
+        SortedSet<Long> keys = new TreeSet<>();
+        for (String name : names) {
+            keys.add(lockKey(LOCK_NAMESPACE_NAME, name.hashCode()));
+        }
+        for (Double rating : ratings) {
+            keys.add(lockKey(LOCK_NAMESPACE_RATING, rating.hashCode()));
+        }
+        // Ключи - числа, поэтому подставляются в VALUES напрямую;
+        // VALUES просматривается по порядку, порядок блокировок сохраняется
+        for (List<Long> batch : partition(keys)) {
+            StringBuilder sql = new StringBuilder("SELECT count(pg_advisory_xact_lock(k)) FROM (VALUES ");
+            for (int i = 0; i < batch.size(); i++) {
+                sql.append(i == 0 ? "(" : ", (").append(batch.get(i)).append(')');
+            }
+            sql.append(") AS v(k)");
+            entityManager.createNativeQuery(sql.toString()).getSingleResult();
+        }
+        return keys.size();
+    }
+
+    /**
+     * Сбросить кэш после изменения организаций нативным SQL.
+     * 
+     * Hibernate не знает о таких изменениях: записи организаций удаляются из
+     * L2 кэша, а регион COUNT очищается. Сброс повторяется после коммита,
+     * иначе параллельная транзакция успела бы положить в кэш старое состояние.
+     */
+    private void evictOrganizations(Collection<Long> ids) {
+        Runnable evict = () -> {
+            Cache cache = entityManager.getEntityManagerFactory().getCache();
+            for (Long id : ids) {
+                cache.evict(Organization.class, id);
+            }
+            entityManager.getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getCache().evictQueryRegion(COUNT_CACHE_REGION);
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+
+    private static long lockKey(int namespace, int hash) {
+        return ((long) namespace << 32) | (hash & 0xFFFFFFFFL);
+    }
+
+    private static <T> List<List<T>> partition(Collection<T> values) {
+        List<List<T>> batches = new ArrayList<>();
+        List<T> current = new ArrayList<>(Math.min(values.size(), IN_BATCH_SIZE));
+        for (T value : values) {
+            current.add(value);
+            if (current.size() == IN_BATCH_SIZE) {
+                batches.add(current);
+                current = new ArrayList<>(IN_BATCH_SIZE);
+            }
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * Выбрать страницу запроса и общее количество согласно CountStrategy запроса.
+     * 
+     * Для ESTIMATED и NONE выбирается на одну строку больше размера страницы:
+     * так известно, есть ли следующая страница, а на последней странице
+     * общее количество получается точным без отдельного запроса.
+     */
+    private <T> Page<T> page(TypedQuery<T> query, PageRequest pageRequest,
+                             Supplier<Long> exactCount, Supplier<Long> estimatedCount) {
+        long offset = pageRequest.getOffset();
+        int size = pageRequest.getPageSize();
+        query.setFirstResult((int) offset);
+
+        if (pageRequest.getCountStrategy() == CountStrategy.EXACT) {
+            query.setMaxResults(size);
+            List<T> content = query.getResultList();
+            return new PageImpl<>(content, pageRequest, exactCount.get());
+        }
+
+        query.setMaxResults(size + 1);
+        List<T> content = new ArrayList<>(query.getResultList());
+        boolean hasNext = content.size() > size;
+        if (!hasNext) {
+            if (content.isEmpty() && offset > 0) {
+                // Страница за пределами данных: где кончаются данные, неизвестно
+                return new PageImpl<>(content, pageRequest, offset, false);
+            }
+            return new PageImpl<>(content, pageRequest, offset + content.size());
+        }
+        content.remove(size);
+
+        long lowerBound = offset + size + 1;
+        if (pageRequest.getCountStrategy() == CountStrategy.ESTIMATED) {
+            long estimate = estimatedCount.get();
+            return new PageImpl<>(content, pageRequest, Math.max(estimate, lowerBound), true);
+        }
+        return new PageImpl<>(content, pageRequest, lowerBound, true);
+    }
+
+    /**
+     * Точный COUNT через кэш запросов Hibernate. Hibernate сбрасывает
+     * результат при любой записи в organizations, в том числе массовыми
+     * и нативными запросами, объявившими Organization затронутой.
+     */
+    private long cachedCount(TypedQuery<Long> countQuery) {
+        countQuery.setHint(HINT_CACHEABLE, true);
+        countQuery.setHint(HINT_CACHE_REGION, COUNT_CACHE_REGION);
+        return countQuery.getSingleResult();
+    }
+
+    /**
+     * Оценка числа строк organizations по pg_class.reltuples.
+     * До первого ANALYZE оценки нет (-1), тогда используется точный подсчёт.
+     */
+    private long estimateTableRows() {
+        Number estimate = (Number) entityManager.createNativeQuery(
+            "SELECT CAST(reltuples AS bigint) FROM pg_class WHERE oid = CAST('organizations' AS regclass)"
+        ).getSingleResult();
+        if (estimate == null || estimate.longValue() < 0) {
+            return cachedCount(entityManager.createQuery("SELECT COUNT(o) FROM Organization o", Long.class));
+        }
+        return estimate.longValue();
+    }
+
+    /**
+     * Оценка числа строк запроса планировщиком PostgreSQL (rows= в корне EXPLAIN).
+     */
+    private long estimatePlanRows(String sql) {
+        List<?> plan = entityManager.createNativeQuery("EXPLAIN " + sql).getResultList();
+        if (!plan.isEmpty()) {
+            Matcher matcher = PLAN_ROWS.matcher(String.valueOf(plan.get(0)));
+            if (matcher.find()) {
+                return Long.parseLong(matcher.group(1));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Загружать организации запроса вместе с координатами и адресами
+     * (граф Organization.GRAPH_DETAILS): один запрос с JOIN вместо
+     * отдельного SELECT на каждую связь каждой строки.
+     */
+    private <T> TypedQuery<T> withDetails(TypedQuery<T> query) {
+        return query.setHint(HINT_LOAD_GRAPH, entityManager.getEntityGraph(Organization.GRAPH_DETAILS));
+    }
+
+    /**
+     * Шаблон ILIKE для подстроки: служебные символы LIKE экранируются '!'
+     */
+    private static String containsPattern(String text) {
+        String escaped = text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        return "%" + escaped + "%";
+    }
+
+    /**
+     * ORDER BY для сортировки из запроса. Имя поля подставляется в JPQL,
+     * поэтому допускаются только поля KeysetColumn; остальные пропускаются,
+     * а если не осталось ни одного, сортировка идёт по id.
+     */
     private String buildOrderBy(Sort sort) {
-        if (sort.isSorted()) {
-            StringBuilder sb = new StringBuilder();
-            for (Sort.Order order : sort) {
-                if (sb.length() > 0) {
-                    sb.append(", ");
+        StringBuilder sb = new StringBuilder();
+        for (Sort.Order order : sort) {
+            if (!supportsKeysetSort(order.getProperty())) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append("o.").append(order.getProperty())
+              .append(" ").append(order.getDirection());
+        }
+        return sb.length() > 0 ? sb.toString() : "o.id ASC";
+    }
+
+    /**
+     * Столбцы, по которым поддерживается keyset-пагинация:
+     * как значение столбца хранится в курсоре и восстанавливается из него.
+     * 
+     * Все столбцы NOT NULL (в том числе rating и annual_turnover), поэтому
+     * порядок NULL не задаётся: сравнение (столбец, id) с NULL не было бы
+     * истинным, и такие строки выпали бы из выдачи. Столбец, допускающий NULL,
+     * можно добавить сюда только вместе с явным NULLS FIRST/LAST и условием
+     * IS NULL в границе. Для каждого столбца есть индекс (столбец, id) из V7.
+     */
+    private enum KeysetColumn {
+        ID("id", OrganizationTableDto::getId, Long::valueOf),
+        NAME("name", OrganizationTableDto::getName, value -> value),
+        TYPE("type", OrganizationTableDto::getType, OrganizationType::valueOf),
+        CREATION_DATE("creationDate", OrganizationTableDto::getCreationDate, LocalDate::parse),
+        RATING("rating", OrganizationTableDto::getRating, Double::valueOf),
+        ANNUAL_TURNOVER("annualTurnover", OrganizationTableDto::getAnnualTurnover, Long::valueOf),
+        EMPLOYEES_COUNT("employeesCount", OrganizationTableDto::getEmployeesCount, Integer::valueOf);
+
+        private final String property;
+        private final Function<OrganizationTableDto, Object> extractor;
+        private final Function<String, Object> parser;
+
+        KeysetColumn(String property, Function<OrganizationTableDto, Object> extractor, Function<String, Object> parser) {
+            this.property = property;
+            this.extractor = extractor;
+            this.parser = parser;
+        }
+
+        static KeysetColumn of(String property) {
+            for (KeysetColumn column : values()) {
+                if (column.property.equals(property)) {
+                    return column;
                 }
-                sb.append("o.").append(order.getProperty())
-                  .append(" ").append(order.getDirection());
             }
-            return sb.toString();
+            throw new IllegalArgumentException("Unsupported keyset sort property: " + property);
+        }
+
+        Object parse(String value) {
+            try {
+                return parser.apply(value);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Malformed cursor value for " + property, e);
+            }
+        }
+
+        KeysetCursor cursor(Sort.Order order, OrganizationTableDto boundary, boolean backward) {
+            Object value = extractor.apply(boundary);
+            String text = value instanceof Enum<?> e ? e.name() : String.valueOf(value);
+            return new KeysetCursor(order.getProperty(), order.getDirection(), text, boundary.getId(), backward);
         }
-        return "o.id ASC";
     }
 }
@@ -0,0 +1,370 @@
+package org.itmo.lab3.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.itmo.lab3.dto.OrganizationImportDto;
+import org.itmo.lab3.model.Address;
+import org.itmo.lab3.model.Coordinates;
+import org.itmo.lab3.model.Organization;
+import org.itmo.lab3.model.OrganizationType;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Импорт больших файлов через PostgreSQL COPY.
+ *
+ * Строки файла потоково валидируются и передаются через CopyManager в
+ * нелогируемую таблицу import_staging, после чего проверки уникальности
+ * и вставка координат, адресов и организаций выполняются несколькими
+ * set-based SQL-запросами в той же транзакции.
+ *
+ * Правила совпадают с ImportService: имя уникально в файле и в БД,
+ * рейтинг уникален в БД, zipCode уникален в файле.
+ */
+@Service
+public class CopyImportEngine {
+
+    private static final String COPY_SQL =
+        "COPY import_staging (batch_id, row_num, name, coord_x, coord_y, " +
+        "official_street, official_zip, annual_turnover, employees_count, rating, type, " +
+        "postal_street, postal_zip) FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * Шаг последовательностей идентификаторов (allocationSize в @SequenceGenerator сущностей)
+     */
+    private static final int ID_BLOCK_SIZE = 50;
+    private static final String BLOCK_ID = "b.v + r.rn % " + ID_BLOCK_SIZE;
+    private static final String BLOCK_JOIN = "b.block = r.rn / " + ID_BLOCK_SIZE;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Validator validator;
+    private final ImportValidationService validationService;
+    private final int chunkSize;
+
+    @Autowired
+    public CopyImportEngine(Validator validator,
+                            ImportValidationService validationService,
+                            @Value("${import.chunk-size:500}") int chunkSize) {
+        this.validator = validator;
+        this.validationService = validationService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Импортировать организации из потока. Выполняется в транзакции вызывающего.
+     *
+     * @param reader потоковый читатель файла импорта
+     * @param maxRows максимальное количество организаций в файле
+     * @param listener получатель событий о прогрессе
+     * @return количество импортированных организаций
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int importOrganizations(OrganizationImportReader reader, int maxRows, ImportProgressListener listener) {
+        String batchId = UUID.randomUUID().toString();
+
+        int rowCount = copyToStaging(reader, batchId, maxRows, listener);
+        if (rowCount == 0) {
+            throw new IllegalArgumentException("Файл не содержит организаций");
+        }
+
+        checkDuplicatesInFile(batchId);
+        checkDuplicatesInDatabase(batchId);
+
+        int imported = insertFromStaging(batchId);
+        listener.onInserted(imported);
+        execute("DELETE FROM import_staging WHERE batch_id = :batchId", batchId);
+        return imported;
+    }
+
+    /**
+     * Фаза 1: потоковая валидация и COPY строк в import_staging.
+     */
+    private int copyToStaging(OrganizationImportReader reader, String batchId, int maxRows,
+                              ImportProgressListener listener) {
+        Session session = entityManager.unwrap(Session.class);
+        return session.doReturningWork(connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                // Ошибки копятся по всему файлу до лимита; после первой ошибки
+                // строки в COPY не передаются
+                ImportValidationService.ValidationErrors validationErrors = validationService.newValidationErrors();
+                int offset = 0;
+                List<OrganizationImportDto> chunk;
+                while (!(chunk = reader.readChunk(chunkSize)).isEmpty()) {
+                    if (offset + chunk.size() > maxRows) {
+                        throw new IllegalArgumentException(
+                            "Файл содержит больше " + maxRows + " организаций");
+                    }
+                    listener.onParsed(offset + chunk.size());
+                    validationService.validate(chunk, offset, validationErrors, this::validateEntities);
+                    listener.onValidated(offset + chunk.size());
+                    if (validationErrors.hasErrors()) {
+                        if (validationErrors.isLimitExceeded()) {
+                            break;
+                        }
+                        offset += chunk.size();
+                        continue;
+                    }
+
+                    StringBuilder csv = new StringBuilder(chunk.size() * 200);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        appendCsvRow(csv, batchId, offset + i + 1, chunk.get(i));
+                    }
+                    byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+                    copyIn.writeToCopy(bytes, 0, bytes.length);
+                    offset += chunk.size();
+                }
+                if (validationErrors.hasErrors()) {
+                    throw new IllegalArgumentException(
+                        "Ошибки валидации: " + String.join("; ", validationErrors.getMessages()));
+                }
+                copyIn.endCopy();
+                return offset;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (copyIn.isActive()) {
+                    try {
+                        copyIn.cancelCopy();
+                    } catch (SQLException ignored) {
+                        // Основная ошибка важнее
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Те же проверки, что выполняются при сохранении сущностей через JPA:
+     * тип организации и ограничения сущностей, которых нет в DTO
+     * (y координат, официальный адрес). Bean Validation DTO выполняет
+     * ImportValidationService.
+     */
+    private List<String> validateEntities(OrganizationImportDto dto) {
+        List<String> errors = new ArrayList<>();
+        if (dto.getType() != null) {
+            try {
+                OrganizationType.valueOf(dto.getType());
+            } catch (IllegalArgumentException e) {
+                errors.add("Неверный тип организации: " + dto.getType());
+            }
+        }
+        if (dto.getCoordinates() != null
+                && dto.getCoordinates().getX() != null && dto.getCoordinates().getY() != null) {
+            Coordinates coordinates = new Coordinates(dto.getCoordinates().getX(), dto.getCoordinates().getY());
+            for (ConstraintViolation<Coordinates> violation : validator.validate(coordinates)) {
+                errors.add(violation.getMessage());
+            }
+        }
+        if (dto.getOfficialAddress() != null) {
+            Address address = new Address(dto.getOfficialAddress().getStreet(), dto.getOfficialAddress().getZipCode());
+            for (ConstraintViolation<Address> violation : validator.validate(address)) {
+                errors.add(violation.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Фаза 2: проверка дубликатов имени, рейтинга и zipCode внутри файла.
+     */
+    private void checkDuplicatesInFile(String batchId) {
+        List<?> duplicateName = query(
+            "SELECT row_num, name FROM (" +
+            "  SELECT row_num, name, row_number() OVER (PARTITION BY name ORDER BY row_num) AS rn" +
+            "  FROM import_staging WHERE batch_id = :batchId) t " +
+            "WHERE rn > 1 ORDER BY row_num LIMIT 1", batchId);
+        if (!duplicateName.isEmpty()) {
+            Object[] row = (Object[]) duplicateName.get(0);
+            throw new IllegalArgumentException("Организация #" + row[0] +
+                ": дублирующееся имя '" + row[1] + "' в файле импорта");
+        }
+
+        List<?> duplicateRating = query(
+            "SELECT row_num, rating FROM (" +
+            "  SELECT row_num, rating, row_number() OVER (PARTITION BY rating ORDER BY row_num) AS rn" +
+            "  FROM import_staging WHERE batch_id = :batchId AND rating IS NOT NULL) t " +
+            "WHERE rn > 1 ORDER BY row_num LIMIT 1", batchId);
+        if (!duplicateRating.isEmpty()) {
+            Object[] row = (Object[]) duplicateRating.get(0);
+            throw new IllegalArgumentException("Организация #" + row[0] +
+                ": дублирующийся рейтинг '" + row[1] + "' в файле импорта");
+        }
+
+        List<?> duplicateZip = query(
+            "SELECT row_num, zip FROM (" +
+            "  SELECT row_num, pos, zip, row_number() OVER (PARTITION BY zip ORDER BY row_num, pos) AS rn FROM (" +
+            "    SELECT row_num, 0 AS pos, postal_zip AS zip FROM import_staging WHERE batch_id = :batchId" +
+            "    UNION ALL" +
+            "    SELECT row_num, 1 AS pos, official_zip FROM import_staging" +
+            "    WHERE batch_id = :batchId AND official_zip IS NOT NULL) z) t " +
+            "WHERE rn > 1 ORDER BY row_num, pos LIMIT 1", batchId);
+        if (!duplicateZip.isEmpty()) {
+            Object[] row = (Object[]) duplicateZip.get(0);
+            throw new IllegalArgumentException("Организация #" + row[0] +
+                ": дублирующийся zipCode '" + row[1] + "' в файле импорта");
+        }
+    }
+
+    /**
+     * Фаза 2: проверка уникальности имени и рейтинга по БД одним соединением таблиц.
+     */
+    private void checkDuplicatesInDatabase(String batchId) {
+        List<?> existingName = query(
+            "SELECT s.name FROM import_staging s JOIN organizations o ON o.name = s.name " +
+            "WHERE s.batch_id = :batchId ORDER BY s.row_num LIMIT 1", batchId);
+        if (!existingName.isEmpty()) {
+            throw new IllegalArgumentException(
+                "Организация с именем '" + existingName.get(0) + "' уже существует в системе");
+        }
+
+        List<?> existingRating = query(
+            "SELECT s.rating FROM import_staging s JOIN organizations o ON o.rating = s.rating " +
+            "WHERE s.batch_id = :batchId ORDER BY s.row_num LIMIT 1", batchId);
+        if (!existingRating.isEmpty()) {
+            throw new IllegalArgumentException(
+                "Организация с рейтингом '" + existingRating.get(0) + "' уже существует в системе");
+        }
+    }
+
+    /**
+     * Фаза 3: set-based вставка координат, адресов и организаций.
+     * Идентификаторы берутся из тех же последовательностей, что и у Hibernate:
+     * pooled-lo резервирует блок на каждый nextval, поэтому пересечений нет.
+     */
+    private int insertFromStaging(String batchId) {
+        // Новые координаты (уже существующие переиспользуются, как в ImportService)
+        execute(
+            withIdBlocks("coordinates_id_seq",
+                "SELECT d.coord_x, d.coord_y, row_number() OVER (ORDER BY d.coord_x, d.coord_y) - 1 AS rn FROM (" +
+                "  SELECT DISTINCT coord_x, coord_y FROM import_staging WHERE batch_id = :batchId) d " +
+                "WHERE NOT EXISTS (SELECT 1 FROM coordinates c WHERE c.x = d.coord_x AND c.y = d.coord_y)") +
+            "INSERT INTO coordinates (id, x, y) " +
+            "SELECT " + BLOCK_ID + ", r.coord_x, r.coord_y FROM new_rows r JOIN id_blocks b ON " + BLOCK_JOIN,
+            batchId, Coordinates.class);
+        execute(
+            "UPDATE import_staging s SET coordinates_id = (" +
+            "  SELECT min(c.id) FROM coordinates c WHERE c.x = s.coord_x AND c.y = s.coord_y) " +
+            "WHERE s.batch_id = :batchId", batchId);
+
+        // Новые адреса; существующие (street, zipCode) переиспользуются, как в ImportService
+        execute(
+            withIdBlocks("addresses_id_seq",
+                "SELECT d.street, d.zip, row_number() OVER (ORDER BY d.zip, d.street) - 1 AS rn FROM (" +
+                "  SELECT postal_street AS street, postal_zip AS zip FROM import_staging WHERE batch_id = :batchId" +
+                "  UNION" +
+                "  SELECT official_street, official_zip FROM import_staging" +
+                "  WHERE batch_id = :batchId AND official_zip IS NOT NULL) d " +
+                "WHERE NOT EXISTS (SELECT 1 FROM addresses a WHERE a.zip_code = d.zip AND a.street = d.street)") +
+            "INSERT INTO addresses (id, street, zip_code) " +
+            "SELECT " + BLOCK_ID + ", r.street, r.zip FROM new_rows r JOIN id_blocks b ON " + BLOCK_JOIN,
+            batchId, Address.class);
+        execute(
+            "UPDATE import_staging s SET postal_address_id = (" +
+            "  SELECT min(a.id) FROM addresses a WHERE a.zip_code = s.postal_zip AND a.street = s.postal_street), " +
+            "  official_address_id = CASE WHEN s.official_zip IS NOT NULL THEN (" +
+            "    SELECT min(a.id) FROM addresses a" +
+            "    WHERE a.zip_code = s.official_zip AND a.street = s.official_street) END " +
+            "WHERE s.batch_id = :batchId", batchId);
+
+        return execute(
+            withIdBlocks("organizations_id_seq",
+                "SELECT s.*, row_number() OVER (ORDER BY s.row_num) - 1 AS rn " +
+                "FROM import_staging s WHERE s.batch_id = :batchId") +
+            "INSERT INTO organizations (id, name, coordinates_id, creation_date, official_address_id, " +
+            "  annual_turnover, employees_count, rating, type, postal_address_id) " +
+            "SELECT " + BLOCK_ID + ", r.name, r.coordinates_id, CURRENT_DATE, r.official_address_id, " +
+            "  r.annual_turnover, r.employees_count, r.rating, r.type, r.postal_address_id " +
+            "FROM new_rows r JOIN id_blocks b ON " + BLOCK_JOIN + " ORDER BY r.rn",
+            batchId, Organization.class);
+    }
+
+    /**
+     * Начало запроса вставки с выделением идентификаторов блоками.
+     * 
+     * Последовательности увеличиваются на ID_BLOCK_SIZE (allocationSize в
+     * @SequenceGenerator): как и pooled-lo оптимизатор Hibernate, один nextval
+     * резервирует ID_BLOCK_SIZE идентификаторов подряд. Строки rowsSelect (с номером
+     * rn с нуля) получают id = начало блока rn / ID_BLOCK_SIZE + rn % ID_BLOCK_SIZE,
+     * то есть nextval вызывается один раз на ID_BLOCK_SIZE строк, а не на каждую.
+     */
+    private static String withIdBlocks(String sequence, String rowsSelect) {
+        return "WITH new_rows AS (" + rowsSelect + "), " +
+            "id_blocks AS (" +
+            "  SELECT row_number() OVER () - 1 AS block, v FROM (" +
+            "    SELECT nextval('" + sequence + "') AS v FROM generate_series(1, " +
+            "      (SELECT CAST((count(*) + " + (ID_BLOCK_SIZE - 1) + ") / " + ID_BLOCK_SIZE + " AS int) FROM new_rows))) n) ";
+    }
+
+    private List<?> query(String sql, String batchId) {
+        NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        query.addSynchronizedQuerySpace("import_staging");
+        query.setParameter("batchId", batchId);
+        return query.getResultList();
+    }
+
+    /**
+     * Выполнить DML-запрос. Переданные сущности объявляются затронутыми,
+     * чтобы Hibernate инвалидировал соответствующие регионы кэша запросов.
+     */
+    private int execute(String sql, String batchId, Class<?>... affectedEntities) {
+        NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        query.addSynchronizedQuerySpace("import_staging");
+        for (Class<?> entity : affectedEntities) {
+            query.addSynchronizedEntityClass(entity);
+        }
+        query.setParameter("batchId", batchId);
+        return query.executeUpdate();
+    }
+
+    private void appendCsvRow(StringBuilder csv, String batchId, int rowNumber, OrganizationImportDto dto) {
+        OrganizationImportDto.AddressDto official = dto.getOfficialAddress();
+        OrganizationImportDto.AddressDto postal = dto.getPostalAddress();
+        appendCsvValue(csv, batchId).append(',');
+        appendCsvValue(csv, rowNumber).append(',');
+        appendCsvValue(csv, dto.getName()).append(',');
+        appendCsvValue(csv, dto.getCoordinates().getX()).append(',');
+        appendCsvValue(csv, dto.getCoordinates().getY()).append(',');
+        appendCsvValue(csv, official != null ? official.getStreet() : null).append(',');
+        appendCsvValue(csv, official != null ? official.getZipCode() : null).append(',');
+        appendCsvValue(csv, dto.getAnnualTurnover()).append(',');
+        appendCsvValue(csv, dto.getEmployeesCount()).append(',');
+        appendCsvValue(csv, dto.getRating()).append(',');
+        appendCsvValue(csv, dto.getType()).append(',');
+        appendCsvValue(csv, postal.getStreet()).append(',');
+        appendCsvValue(csv, postal.getZipCode()).append('\n');
+    }
+
+    /**
+     * null записывается пустым значением без кавычек (NULL в CSV-формате COPY),
+     * строки всегда в кавычках, чтобы пустая строка не превратилась в NULL.
+     */
+    private StringBuilder appendCsvValue(StringBuilder csv, Object value) {
+        if (value == null) {
+            return csv;
+        }
+        if (value instanceof String) {
+            return csv.append('"').append(((String) value).replace("\"", "\"\"")).append('"');
+        }
+        return csv.append(value);
+    }
+}
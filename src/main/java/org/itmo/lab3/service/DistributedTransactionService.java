@@ -1,14 +1,22 @@
 package org.itmo.lab3.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.itmo.lab3.dto.OrganizationImportDto;
 import org.itmo.lab3.model.ImportHistory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,58 +29,132 @@ public class DistributedTransactionService {
     private final MinioService minioService;
     private final ImportService importService;
     private final ObjectMapper objectMapper;
+    private final long copyThresholdBytes;
+    private final int retryMaxAttempts;
+    private final long retryBackoffMillis;
 
     @Autowired
     public DistributedTransactionService(MinioService minioService, 
-                                         ImportService importService) {
+                                         ImportService importService,
+                                         @Value("${import.copy-threshold-bytes:52428800}") long copyThresholdBytes,
+                                         @Value("${import.retry.max-attempts:3}") int retryMaxAttempts,
+                                         @Value("${import.retry.backoff-ms:200}") long retryBackoffMillis) {
         this.minioService = minioService;
         this.importService = importService;
         this.objectMapper = new ObjectMapper();
+        this.copyThresholdBytes = copyThresholdBytes;
+        this.retryMaxAttempts = Math.max(1, retryMaxAttempts);
+        this.retryBackoffMillis = Math.max(0, retryBackoffMillis);
     }
 
     /**
      * Выполнить распределенный импорт с двухфазным коммитом
      */
     public ImportResult executeDistributedImport(MultipartFile file, String username) {
+        return executeDistributedImport(file, username, false);
+    }
+
+    /**
+     * Выполнить распределенный импорт с двухфазным коммитом.
+     * При skipInvalid=true невалидные строки пропускаются (см. ImportService).
+     */
+    public ImportResult executeDistributedImport(MultipartFile file, String username, boolean skipInvalid) {
+        return executeDistributedImport(file, username, skipInvalid, false);
+    }
+
+    /**
+     * Выполнить распределенный импорт с двухфазным коммитом.
+     * При force=true файл импортируется, даже если такое содержимое уже импортировано.
+     */
+    public ImportResult executeDistributedImport(MultipartFile file, String username,
+                                                 boolean skipInvalid, boolean force) {
+        return executeDistributedImport(file, file.getSize(), file.getOriginalFilename(),
+            file.getContentType(), username, skipInvalid, force, ImportProgressListener.NONE);
+    }
+
+    /**
+     * Выполнить распределенный импорт с двухфазным коммитом.
+     * 
+     * @param source источник содержимого файла; читается дважды (MinIO и парсер)
+     * @param size размер файла в байтах
+     * @param fileName оригинальное имя файла
+     * @param contentType MIME тип файла
+     * @param username пользователь, выполняющий импорт
+     * @param skipInvalid пропускать невалидные строки вместо отката всего импорта
+     * @param force импортировать, даже если файл с таким содержимым уже импортирован
+     * @param listener получатель событий о прогрессе
+     */
+    public ImportResult executeDistributedImport(InputStreamSource source,
+                                                 long size,
+                                                 String fileName,
+                                                 String contentType,
+                                                 String username,
+                                                 boolean skipInvalid,
+                                                 boolean force,
+                                                 ImportProgressListener listener) {
         String objectName = null;
         TransactionPhase currentPhase = TransactionPhase.INIT;
         
         try {
+            // Файл с тем же содержимым уже успешно импортирован, и его организации
+            // не удалялись: повторный импорт упал бы на дубликатах имён, поэтому
+            // ни MinIO, ни БД не задействуются (если повтор не запрошен явно)
+            String contentHash = sha256(source);
+            Optional<ImportHistory> previous = force ? Optional.empty()
+                : importService.findCompletedImportByContentHash(contentHash);
+            if (previous.isPresent()) {
+                logger.info("[2PC] File already imported (history " + previous.get().getId() 
+                    + "), skipping: " + contentHash);
+                return new ImportResult(true, previous.get(), null, true);
+            }
+            
             // ФАЗА 1: PREPARE - Загрузка файла в MinIO
             currentPhase = TransactionPhase.PREPARE_MINIO;
+            listener.onPhase(currentPhase);
             logger.info("[2PC] Phase 1: PREPARE - Uploading file to MinIO");
             
-            byte[] fileContent = file.getBytes();
-            objectName = minioService.uploadFile(
-                fileContent, 
-                file.getOriginalFilename(), 
-                file.getContentType()
-            );
+            // Файл лежит на диске (multipart-файл контейнера или временный файл
+            // асинхронной задачи), поэтому и MinIO, и парсер читают его потоком
+            try (InputStream fileContent = source.getInputStream()) {
+                objectName = minioService.uploadFile(fileContent, size, fileName, contentType);
+            }
             
             logger.info("[2PC] Phase 1: PREPARE - File uploaded: " + objectName);
             
-            // ФАЗА 1: Парсинг JSON
+            // ФАЗА 1: Открытие потокового парсера JSON
             currentPhase = TransactionPhase.VALIDATE;
-            logger.info("[2PC] Phase 1: Parsing JSON");
+            listener.onPhase(currentPhase);
+            logger.info("[2PC] Phase 1: Parsing JSON (streaming)");
             
-            List<OrganizationImportDto> organizations = objectMapper.readValue(
-                fileContent, 
-                new TypeReference<List<OrganizationImportDto>>() {}
-            );
-            
-            if (organizations.isEmpty()) {
-                throw new IllegalArgumentException("Файл не содержит организаций");
+            ImportHistory history;
+            for (int attempt = 1; ; attempt++) {
+                try (OrganizationImportReader reader = 
+                         new OrganizationImportReader(source.getInputStream(), objectMapper)) {
+                    
+                    // ФАЗА 2: COMMIT - Валидация и сохранение данных в БД порциями
+                    currentPhase = TransactionPhase.COMMIT_DB;
+                    listener.onPhase(currentPhase);
+                    logger.info("[2PC] Phase 2: COMMIT - Saving data to database");
+                    
+                    history = importToDatabase(reader, size, username, objectName, contentHash, 
+                        skipInvalid, listener);
+                    break;
+                } catch (RuntimeException e) {
+                    // В режиме пропуска часть порций уже зафиксирована, повтор недопустим
+                    if (skipInvalid || attempt >= retryMaxAttempts || !isRetryable(e)) {
+                        throw e;
+                    }
+                    logger.warning("[2PC] Phase 2: COMMIT - Concurrency conflict, retrying (attempt " 
+                        + attempt + " of " + retryMaxAttempts + "): " + e.getMessage());
+                    backoff(attempt, e);
+                }
             }
             
-            // ФАЗА 2: COMMIT - Сохранение данных в БД
-            currentPhase = TransactionPhase.COMMIT_DB;
-            logger.info("[2PC] Phase 2: COMMIT - Saving data to database");
-            
-            ImportHistory history = importService.importOrganizationsWithFile(
-                organizations, 
-                username, 
-                objectName
-            );
+            if ("FAILED".equals(history.getStatus())) {
+                // Импорт прерван, но часть порций уже зафиксирована: файл остаётся в MinIO
+                logger.warning("[2PC] Import interrupted after partial commit: " + history.getErrorMessage());
+                return new ImportResult(false, history, history.getErrorMessage());
+            }
             
             logger.info("[2PC] Transaction COMMITTED successfully");
             
@@ -96,6 +178,74 @@ public class DistributedTransactionService {
         }
     }
 
+    /**
+     * Импорт из открытого читателя: выбор пути импорта по режиму и размеру файла.
+     */
+    private ImportHistory importToDatabase(OrganizationImportReader reader, long size, String username,
+                                           String objectName, String contentHash, boolean skipInvalid,
+                                           ImportProgressListener listener) {
+        if (skipInvalid) {
+            // Порции фиксируются по отдельности, COPY здесь не применяется
+            return importService.importOrganizationsSkippingInvalid(reader, username, objectName, contentHash, listener);
+        }
+        if (size >= copyThresholdBytes) {
+            // Очень большие файлы загружаются через PostgreSQL COPY
+            logger.info("[2PC] Phase 2: COMMIT - Using COPY fast path");
+            return importService.importOrganizationsCopy(reader, username, objectName, contentHash, listener);
+        }
+        return importService.importOrganizationsStream(reader, username, objectName, contentHash, listener);
+    }
+
+    /**
+     * SHA-256 содержимого файла (hex). Файл читается с локального диска
+     * до загрузки в MinIO, чтобы повторная загрузка не тратила сеть.
+     */
+    private static String sha256(InputStreamSource source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+        try (InputStream in = new DigestInputStream(source.getInputStream(), digest)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (in.read(buffer) != -1) {
+                // Содержимое учитывается в digest при чтении
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Ошибка сериализации (40001) или взаимоблокировка (40P01): транзакция
+     * откатилась из-за параллельной транзакции, импорт можно повторить.
+     */
+    private static boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                if ("40001".equals(sqlState) || "40P01".equals(sqlState)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Пауза перед повтором: растёт с номером попытки, случайная добавка
+     * разводит по времени одновременно откатившиеся импорты.
+     */
+    private void backoff(int attempt, RuntimeException cause) {
+        long delay = retryBackoffMillis * attempt + ThreadLocalRandom.current().nextLong(retryBackoffMillis + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
     /**
      * Откат загрузки файла в MinIO.
      */
@@ -111,13 +261,37 @@ public class DistributedTransactionService {
     }
 
     /**
-     * Скачать файл импорта из MinIO.
+     * Открыть поток чтения файла импорта из MinIO.
      * 
      * @param objectName имя объекта в MinIO
-     * @return содержимое файла
+     * @return поток с содержимым файла; закрывает вызывающий
+     */
+    public InputStream openImportFile(String objectName) throws MinioService.MinioDownloadException {
+        return minioService.openFile(objectName);
+    }
+
+    /**
+     * Открыть поток чтения диапазона байт исходного содержимого файла импорта.
+     */
+    public InputStream openImportFile(MinioService.StoredFileInfo file, long offset, long length) 
+            throws MinioService.MinioDownloadException {
+        return minioService.openFile(file, offset, length);
+    }
+
+    /**
+     * Открыть поток чтения диапазона байт файла импорта в том виде,
+     * в котором он хранится в MinIO (для сжатого файла - gzip).
      */
-    public byte[] downloadImportFile(String objectName) throws MinioService.MinioDownloadException {
-        return minioService.downloadFile(objectName);
+    public InputStream openStoredImportFile(MinioService.StoredFileInfo file, long offset, long length) 
+            throws MinioService.MinioDownloadException {
+        return minioService.openStoredFile(file, offset, length);
+    }
+
+    /**
+     * Метаданные файла импорта в MinIO (размер, ETag, время изменения, сжатие).
+     */
+    public MinioService.StoredFileInfo statImportFile(String objectName) throws MinioService.MinioDownloadException {
+        return minioService.statFile(objectName);
     }
 
     /**
@@ -145,11 +319,17 @@ public class DistributedTransactionService {
         private final boolean success;
         private final ImportHistory history;
         private final String errorMessage;
+        private final boolean duplicate;
 
         public ImportResult(boolean success, ImportHistory history, String errorMessage) {
+            this(success, history, errorMessage, false);
+        }
+
+        public ImportResult(boolean success, ImportHistory history, String errorMessage, boolean duplicate) {
             this.success = success;
             this.history = history;
             this.errorMessage = errorMessage;
+            this.duplicate = duplicate;
         }
 
         public boolean isSuccess() {
@@ -163,5 +343,12 @@ public class DistributedTransactionService {
         public String getErrorMessage() {
             return errorMessage;
         }
+
+        /**
+         * Файл уже был импортирован ранее; history - тот импорт
+         */
+        public boolean isDuplicate() {
+            return duplicate;
+        }
     }
 }
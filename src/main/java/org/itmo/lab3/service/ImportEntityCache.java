@@ -0,0 +1,199 @@
+package org.itmo.lab3.service;
+
+import org.itmo.lab3.dto.OrganizationImportDto;
+import org.itmo.lab3.model.Address;
+import org.itmo.lab3.model.Coordinates;
+import org.itmo.lab3.model.Organization;
+import org.itmo.lab3.repository.jpa.AddressRepositoryJpa;
+import org.itmo.lab3.repository.jpa.CoordinatesRepositoryJpa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Кэш координат и адресов на время одного импорта.
+ *
+ * Перед обработкой порции существующие в БД координаты и адреса для всех
+ * ключей порции загружаются несколькими запросами с IN (...), а не запросом
+ * на каждую строку. Сущности, созданные ранее в этом же импорте,
+ * переиспользуются: одинаковые (x, y) в файле дают одну строку coordinates.
+ *
+ * Хранятся только идентификаторы, поэтому кэш переживает очистку контекста
+ * персистентности между порциями: сущность получается через getReference.
+ *
+ * Если порция фиксируется в отдельной транзакции, ключи порции до фиксации
+ * считаются незафиксированными: rollback забывает их, и идентификаторы
+ * отменённых строк не попадают в следующие порции.
+ */
+class ImportEntityCache {
+
+    private static final int IN_BATCH_SIZE = 1000;
+
+    private final CoordinatesRepositoryJpa coordinatesRepository;
+    private final AddressRepositoryJpa addressRepository;
+
+    private final Map<CoordinatesKey, Long> coordinatesIds = new HashMap<>();
+    private final Map<AddressKey, Long> addressIds = new HashMap<>();
+    // Ключи, которых нет в БД: повторно не запрашиваются
+    private final Set<CoordinatesKey> checkedCoordinates = new HashSet<>();
+    private final Set<AddressKey> checkedAddresses = new HashSet<>();
+    // Ключи, добавленные после последнего commit
+    private final List<CoordinatesKey> uncommittedCoordinates = new ArrayList<>();
+    private final List<AddressKey> uncommittedAddresses = new ArrayList<>();
+
+    ImportEntityCache(CoordinatesRepositoryJpa coordinatesRepository,
+                      AddressRepositoryJpa addressRepository) {
+        this.coordinatesRepository = coordinatesRepository;
+        this.addressRepository = addressRepository;
+    }
+
+    /**
+     * Загрузить существующие координаты и адреса для ключей порции,
+     * которые ещё не встречались в этом импорте.
+     */
+    void preload(List<OrganizationImportDto> chunk) {
+        Set<CoordinatesKey> newCoordinates = new LinkedHashSet<>();
+        Set<AddressKey> newAddresses = new LinkedHashSet<>();
+        for (OrganizationImportDto dto : chunk) {
+            if (dto.getCoordinates() != null) {
+                CoordinatesKey key = new CoordinatesKey(dto.getCoordinates().getX(), dto.getCoordinates().getY());
+                if (checkedCoordinates.add(key)) {
+                    newCoordinates.add(key);
+                    uncommittedCoordinates.add(key);
+                }
+            }
+            addAddressKey(dto.getPostalAddress(), newAddresses);
+            addAddressKey(dto.getOfficialAddress(), newAddresses);
+        }
+
+        for (List<CoordinatesKey> batch : partition(newCoordinates)) {
+            List<Integer> xs = new ArrayList<>(batch.size());
+            List<Float> ys = new ArrayList<>(batch.size());
+            for (CoordinatesKey key : batch) {
+                xs.add(key.x());
+                ys.add(key.y());
+            }
+            for (Coordinates coordinates : coordinatesRepository.findByXAndYPairs(xs, ys)) {
+                coordinatesIds.putIfAbsent(new CoordinatesKey(coordinates.getX(), coordinates.getY()),
+                    coordinates.getId());
+            }
+        }
+
+        List<String> zipCodes = new ArrayList<>();
+        for (AddressKey key : newAddresses) {
+            zipCodes.add(key.zipCode());
+        }
+        for (List<String> batch : partition(zipCodes)) {
+            for (Address address : addressRepository.findByZipCodeIn(batch)) {
+                AddressKey key = new AddressKey(address.getStreet(), address.getZipCode());
+                if (newAddresses.contains(key)) {
+                    addressIds.putIfAbsent(key, address.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Координаты для строки импорта: существующие или новые (сохранятся каскадно).
+     */
+    Coordinates resolveCoordinates(Integer x, Float y) {
+        Long id = coordinatesIds.get(new CoordinatesKey(x, y));
+        if (id != null) {
+            return coordinatesRepository.getReference(id);
+        }
+        return new Coordinates(x, y);
+    }
+
+    /**
+     * Адрес для строки импорта: существующий или новый (сохранится каскадно).
+     */
+    Address resolveAddress(String street, String zipCode) {
+        Long id = addressIds.get(new AddressKey(street, zipCode));
+        if (id != null) {
+            return addressRepository.getReference(id);
+        }
+        return new Address(street, zipCode);
+    }
+
+    /**
+     * Запомнить координаты и адреса сохранённой организации,
+     * чтобы следующие строки файла ссылались на них.
+     */
+    void remember(Organization organization) {
+        Coordinates coordinates = organization.getCoordinates();
+        if (coordinates != null && coordinates.getId() != null) {
+            CoordinatesKey key = new CoordinatesKey(coordinates.getX(), coordinates.getY());
+            if (coordinatesIds.putIfAbsent(key, coordinates.getId()) == null) {
+                uncommittedCoordinates.add(key);
+            }
+        }
+        rememberAddress(organization.getPostalAddress());
+        rememberAddress(organization.getOfficialAddress());
+    }
+
+    private void rememberAddress(Address address) {
+        if (address != null && address.getId() != null) {
+            AddressKey key = new AddressKey(address.getStreet(), address.getZipCode());
+            if (addressIds.putIfAbsent(key, address.getId()) == null) {
+                uncommittedAddresses.add(key);
+            }
+        }
+    }
+
+    /**
+     * Транзакция порции зафиксирована: её ключи остаются в кэше.
+     */
+    void commit() {
+        uncommittedCoordinates.clear();
+        uncommittedAddresses.clear();
+    }
+
+    /**
+     * Транзакция порции откачена: забыть ключи порции, найденные и созданные
+     * в ней идентификаторы больше не действительны.
+     */
+    void rollback() {
+        for (CoordinatesKey key : uncommittedCoordinates) {
+            checkedCoordinates.remove(key);
+            coordinatesIds.remove(key);
+        }
+        for (AddressKey key : uncommittedAddresses) {
+            checkedAddresses.remove(key);
+            addressIds.remove(key);
+        }
+        commit();
+    }
+
+    private void addAddressKey(OrganizationImportDto.AddressDto address, Set<AddressKey> newAddresses) {
+        if (address != null) {
+            AddressKey key = new AddressKey(address.getStreet(), address.getZipCode());
+            if (checkedAddresses.add(key)) {
+                newAddresses.add(key);
+                uncommittedAddresses.add(key);
+            }
+        }
+    }
+
+    private static <T> List<List<T>> partition(Set<T> values) {
+        return partition(new ArrayList<>(values));
+    }
+
+    private static <T> List<List<T>> partition(List<T> values) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += IN_BATCH_SIZE) {
+            batches.add(values.subList(from, Math.min(from + IN_BATCH_SIZE, values.size())));
+        }
+        return batches;
+    }
+
+    private record CoordinatesKey(Integer x, Float y) {
+    }
+
+    private record AddressKey(String street, String zipCode) {
+    }
+}
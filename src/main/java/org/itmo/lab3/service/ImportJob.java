@@ -0,0 +1,147 @@
+package org.itmo.lab3.service;
+
+/**
+ * Асинхронная задача импорта и её текущий прогресс.
+ * Обновляется потоком импорта, читается контроллером и рассылается по WebSocket.
+ * Время хранится в миллисекундах epoch, чтобы сериализоваться в JSON без модулей Jackson.
+ */
+public class ImportJob implements ImportProgressListener {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCESS,
+        FAILED
+    }
+
+    private final String id;
+    private final String username;
+    private final String fileName;
+    private final long createdAt;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile DistributedTransactionService.TransactionPhase phase =
+        DistributedTransactionService.TransactionPhase.INIT;
+    private volatile int parsedCount;
+    private volatile int validatedCount;
+    private volatile int insertedCount;
+    private volatile int rejectedCount;
+    private volatile boolean duplicate;
+    private volatile Long historyId;
+    private volatile String errorMessage;
+    private volatile Long finishedAt;
+
+    public ImportJob(String id, String username, String fileName) {
+        this.id = id;
+        this.username = username;
+        this.fileName = fileName;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public void onPhase(DistributedTransactionService.TransactionPhase phase) {
+        this.phase = phase;
+    }
+
+    @Override
+    public void onParsed(int parsedCount) {
+        this.parsedCount = parsedCount;
+    }
+
+    @Override
+    public void onValidated(int validatedCount) {
+        this.validatedCount = validatedCount;
+    }
+
+    @Override
+    public void onInserted(int insertedCount) {
+        this.insertedCount = insertedCount;
+    }
+
+    void markRunning() {
+        this.status = Status.RUNNING;
+    }
+
+    void markFinished(DistributedTransactionService.ImportResult result) {
+        if (result.getHistory() != null) {
+            this.historyId = result.getHistory().getId();
+            if (result.getHistory().getImportedCount() != null) {
+                this.insertedCount = result.getHistory().getImportedCount();
+            }
+            if (result.getHistory().getRejectedCount() != null) {
+                this.rejectedCount = result.getHistory().getRejectedCount();
+            }
+        }
+        this.duplicate = result.isDuplicate();
+        if (result.isSuccess()) {
+            this.status = Status.SUCCESS;
+        } else {
+            this.errorMessage = result.getErrorMessage();
+            this.status = Status.FAILED;
+        }
+        this.finishedAt = System.currentTimeMillis();
+    }
+
+    public boolean isFinished() {
+        return status == Status.SUCCESS || status == Status.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public DistributedTransactionService.TransactionPhase getPhase() {
+        return phase;
+    }
+
+    public int getParsedCount() {
+        return parsedCount;
+    }
+
+    public int getValidatedCount() {
+        return validatedCount;
+    }
+
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Файл уже был импортирован ранее, historyId указывает на тот импорт
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public Long getHistoryId() {
+        return historyId;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public Long getFinishedAt() {
+        return finishedAt;
+    }
+}
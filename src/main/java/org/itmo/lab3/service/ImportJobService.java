@@ -0,0 +1,182 @@
+package org.itmo.lab3.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Сервис асинхронных задач импорта.
+ * 
+ * Загруженный файл копируется во временный файл (multipart-файл контейнера
+ * удаляется по окончании запроса), задача ставится в ограниченную очередь
+ * пула importExecutor, а прогресс рассылается по WebSocket в топик
+ * /topic/import-jobs/{jobId}.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger logger = Logger.getLogger(ImportJobService.class.getName());
+
+    private final DistributedTransactionService distributedTransactionService;
+    private final WebSocketNotificationService notificationService;
+    private final TaskExecutor importExecutor;
+    private final long retentionMillis;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ImportJobService(DistributedTransactionService distributedTransactionService,
+                            WebSocketNotificationService notificationService,
+                            @Qualifier("importExecutor") TaskExecutor importExecutor,
+                            @Value("${import.async.retention-minutes:60}") long retentionMinutes) {
+        this.distributedTransactionService = distributedTransactionService;
+        this.notificationService = notificationService;
+        this.importExecutor = importExecutor;
+        this.retentionMillis = retentionMinutes * 60_000;
+    }
+
+    /**
+     * Поставить импорт в очередь.
+     * 
+     * @return созданная задача
+     * @throws IllegalStateException если очередь импорта переполнена
+     */
+    public ImportJob submit(MultipartFile file, String username) throws IOException {
+        return submit(file, username, false);
+    }
+
+    /**
+     * Поставить импорт в очередь.
+     * 
+     * @param skipInvalid пропускать невалидные строки (см. ImportService)
+     * @return созданная задача
+     * @throws IllegalStateException если очередь импорта переполнена
+     */
+    public ImportJob submit(MultipartFile file, String username, boolean skipInvalid) throws IOException {
+        return submit(file, username, skipInvalid, false);
+    }
+
+    /**
+     * Поставить импорт в очередь.
+     * 
+     * @param skipInvalid пропускать невалидные строки (см. ImportService)
+     * @param force импортировать, даже если файл с таким содержимым уже импортирован
+     * @return созданная задача
+     * @throws IllegalStateException если очередь импорта переполнена
+     */
+    public ImportJob submit(MultipartFile file, String username, boolean skipInvalid, boolean force)
+            throws IOException {
+        removeExpiredJobs();
+
+        Path tempFile = Files.createTempFile("import-", ".json");
+        try (InputStream inputStream = file.getInputStream()) {
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteTempFile(tempFile);
+            throw e;
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), username, file.getOriginalFilename());
+        ProgressPublisher publisher = new ProgressPublisher(job);
+        jobs.put(job.getId(), job);
+
+        try {
+            importExecutor.execute(() -> run(job, publisher, tempFile, file.getSize(), file.getContentType(),
+                skipInvalid, force));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getId());
+            deleteTempFile(tempFile);
+            throw new IllegalStateException("Очередь импорта переполнена, попробуйте позже", e);
+        }
+
+        logger.info("Import job queued: " + job.getId());
+        return job;
+    }
+
+    public Optional<ImportJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void run(ImportJob job, ProgressPublisher publisher, Path tempFile, long size, String contentType,
+                     boolean skipInvalid, boolean force) {
+        try {
+            job.markRunning();
+            notificationService.notifyImportProgress(job);
+
+            DistributedTransactionService.ImportResult result = distributedTransactionService.executeDistributedImport(
+                new FileSystemResource(tempFile), size, job.getFileName(), contentType, job.getUsername(), skipInvalid, force, publisher);
+            job.markFinished(result);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Import job failed: " + job.getId(), e);
+            job.markFinished(new DistributedTransactionService.ImportResult(false, null, e.getMessage()));
+        } finally {
+            deleteTempFile(tempFile);
+            notificationService.notifyImportProgress(job);
+        }
+    }
+
+    private void removeExpiredJobs() {
+        long threshold = System.currentTimeMillis() - retentionMillis;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < threshold);
+    }
+
+    private void deleteTempFile(Path tempFile) {
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to delete temporary import file: " + tempFile, e);
+        }
+    }
+
+    /**
+     * Обновляет задачу и рассылает прогресс. Счётчики меняются раз в порцию,
+     * поэтому сообщения идут не чаще одного на chunk-size записей.
+     */
+    private class ProgressPublisher implements ImportProgressListener {
+
+        private final ImportJob job;
+
+        private ProgressPublisher(ImportJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void onPhase(DistributedTransactionService.TransactionPhase phase) {
+            job.onPhase(phase);
+            notificationService.notifyImportProgress(job);
+        }
+
+        @Override
+        public void onParsed(int parsedCount) {
+            job.onParsed(parsedCount);
+        }
+
+        @Override
+        public void onValidated(int validatedCount) {
+            job.onValidated(validatedCount);
+            notificationService.notifyImportProgress(job);
+        }
+
+        @Override
+        public void onInserted(int insertedCount) {
+            job.onInserted(insertedCount);
+            notificationService.notifyImportProgress(job);
+        }
+    }
+}
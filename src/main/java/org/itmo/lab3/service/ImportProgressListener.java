@@ -0,0 +1,23 @@
+package org.itmo.lab3.service;
+
+/**
+ * Получатель событий о ходе импорта.
+ * Счётчики передаются нарастающим итогом по файлу.
+ */
+public interface ImportProgressListener {
+
+    ImportProgressListener NONE = new ImportProgressListener() {
+    };
+
+    default void onPhase(DistributedTransactionService.TransactionPhase phase) {
+    }
+
+    default void onParsed(int parsedCount) {
+    }
+
+    default void onValidated(int validatedCount) {
+    }
+
+    default void onInserted(int insertedCount) {
+    }
+}
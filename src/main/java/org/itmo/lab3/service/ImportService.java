@@ -1,17 +1,21 @@
 package org.itmo.lab3.service;
 
-import jakarta.validation.ConstraintViolation;
-import jakarta.validation.Validator;
+import org.hibernate.exception.ConstraintViolationException;
 import org.itmo.lab3.dto.OrganizationImportDto;
 import org.itmo.lab3.model.*;
 import org.itmo.lab3.repository.jpa.AddressRepositoryJpa;
 import org.itmo.lab3.repository.jpa.CoordinatesRepositoryJpa;
 import org.itmo.lab3.repository.jpa.ImportHistoryRepositoryJpa;
+import org.itmo.lab3.repository.jpa.ImportRowErrorRepositoryJpa;
 import org.itmo.lab3.repository.jpa.OrganizationRepositoryJpa;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -23,122 +27,64 @@ public class ImportService {
     private final AddressRepositoryJpa addressRepository;
     private final CoordinatesRepositoryJpa coordinatesRepository;
     private final ImportHistoryRepositoryJpa importHistoryRepository;
-    private final Validator validator;
+    private final ImportRowErrorRepositoryJpa importRowErrorRepository;
+    private final ImportValidationService validationService;
     private final WebSocketNotificationService notificationService;
+    private final CopyImportEngine copyImportEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxRows;
+    private final int flushInterval;
+    private final int lockMaxKeys;
 
     @Autowired
     public ImportService(OrganizationRepositoryJpa organizationRepository,
                         AddressRepositoryJpa addressRepository,
                         CoordinatesRepositoryJpa coordinatesRepository,
                         ImportHistoryRepositoryJpa importHistoryRepository,
-                        Validator validator,
-                        WebSocketNotificationService notificationService) {
+                        ImportRowErrorRepositoryJpa importRowErrorRepository,
+                        ImportValidationService validationService,
+                        WebSocketNotificationService notificationService,
+                        CopyImportEngine copyImportEngine,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${import.chunk-size:500}") int chunkSize,
+                        @Value("${import.max-rows:1000000}") int maxRows,
+                        @Value("${import.flush-interval:50}") int flushInterval,
+                        @Value("${import.lock.max-keys:1000}") int lockMaxKeys) {
         this.organizationRepository = organizationRepository;
         this.addressRepository = addressRepository;
         this.coordinatesRepository = coordinatesRepository;
         this.importHistoryRepository = importHistoryRepository;
-        this.validator = validator;
+        this.importRowErrorRepository = importRowErrorRepository;
+        this.validationService = validationService;
         this.notificationService = notificationService;
+        this.copyImportEngine = copyImportEngine;
+        // Транзакции порций в режиме пропуска невалидных строк
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.chunkSize = chunkSize;
+        this.maxRows = maxRows;
+        this.flushInterval = flushInterval;
+        this.lockMaxKeys = lockMaxKeys;
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = Exception.class)
+    @Transactional(isolation = Isolation.READ_COMMITTED, rollbackFor = Exception.class)
     public ImportHistory importOrganizations(List<OrganizationImportDto> dtos, String username) {
         ImportHistory history = new ImportHistory();
         history.setUsername(username);
         history.setTimestamp(java.time.LocalDateTime.now());
 
         try {
-            // Валидация всех объектов
-            List<String> validationErrors = new ArrayList<>();
-            for (int i = 0; i < dtos.size(); i++) {
-                OrganizationImportDto dto = dtos.get(i);
-                Set<ConstraintViolation<OrganizationImportDto>> violations = validator.validate(dto);
-                if (!violations.isEmpty()) {
-                    for (ConstraintViolation<OrganizationImportDto> violation : violations) {
-                        validationErrors.add("Организация #" + (i + 1) + ": " + violation.getMessage());
-                    }
-                }
-            }
-
-            if (!validationErrors.isEmpty()) {
-                throw new IllegalArgumentException("Ошибки валидации: " + String.join("; ", validationErrors));
-            }
-
-            // Проверка уникальности внутри импортируемого файла
-            Set<String> namesInImport = new HashSet<>();
-            Set<String> zipCodesInImport = new HashSet<>();
-            Set<Double> ratingsInImport = new HashSet<>();
-            
-            for (int i = 0; i < dtos.size(); i++) {
-                OrganizationImportDto dto = dtos.get(i);
-                
-                // Проверка уникальности имени внутри файла
-                if (namesInImport.contains(dto.getName())) {
-                    throw new IllegalArgumentException("Организация #" + (i + 1) + 
-                        ": дублирующееся имя '" + dto.getName() + "' в файле импорта");
-                }
-                namesInImport.add(dto.getName());
-
-                // Копим рейтинги для последующей проверки против БД
-                if (dto.getRating() != null) {
-                    ratingsInImport.add(dto.getRating());
-                }
-
-                // Проверка уникальности zipCode внутри файла (только внутри файла, не в БД)
-                if (dto.getPostalAddress() != null) {
-                    String zipCode = dto.getPostalAddress().getZipCode();
-                    if (zipCodesInImport.contains(zipCode)) {
-                        throw new IllegalArgumentException("Организация #" + (i + 1) + 
-                            ": дублирующийся zipCode '" + zipCode + "' в файле импорта");
-                    }
-                    zipCodesInImport.add(zipCode);
-                }
-
-                if (dto.getOfficialAddress() != null) {
-                    String zipCode = dto.getOfficialAddress().getZipCode();
-                    if (zipCodesInImport.contains(zipCode)) {
-                        throw new IllegalArgumentException("Организация #" + (i + 1) + 
-                            ": дублирующийся zipCode '" + zipCode + "' в файле импорта");
-                    }
-                    zipCodesInImport.add(zipCode);
-                }
-            }
-
-            // Проверка уникальности по БД: имя и рейтинг не должны уже существовать
-            for (String name : namesInImport) {
-                if (organizationRepository.existsByName(name)) {
-                    throw new IllegalArgumentException(
-                        "Организация с именем '" + name + "' уже существует в системе");
-                }
-            }
-            for (Double rating : ratingsInImport) {
-                if (!organizationRepository.findByRating(rating).isEmpty()) {
-                    throw new IllegalArgumentException(
-                        "Организация с рейтингом '" + rating + "' уже существует в системе");
-                }
-            }
-
-            // Создание организаций
-            int count = 0;
-            for (OrganizationImportDto dto : dtos) {
-                Organization organization = convertToEntity(dto);
-                organizationRepository.save(organization);
-                count++;
-                notificationService.notifyOrganizationCreated(organization.getId());
-            }
-
+            ImportState state = newImportState();
+            importChunk(dtos, 0, state, ImportProgressListener.NONE);
+            throwIfInvalid(state);
             organizationRepository.flush();
 
-            history.setStatus("SUCCESS");
-            history.setImportedCount(count);
-            importHistoryRepository.save(history);
-            importHistoryRepository.flush();
-
-            return history;
+            return completeHistory(history, state.importedCount);
 
         } catch (Exception e) {
             history.setStatus("FAILED");
-            history.setErrorMessage(e.getMessage());
+            history.setErrorMessage(describeError(e));
             
             // Сохраняем историю в отдельной транзакции
             try {
@@ -147,7 +93,7 @@ public class ImportService {
                 // Игнорируем ошибки сохранения истории
             }
             
-            throw new RuntimeException("Импорт не выполнен: " + e.getMessage(), e);
+            throw new RuntimeException("Импорт не выполнен: " + history.getErrorMessage(), e);
         }
     }
 
@@ -157,6 +103,14 @@ public class ImportService {
         importHistoryRepository.flush();
     }
 
+    /**
+     * Последний завершённый (SUCCESS или PARTIAL) импорт файла с таким же содержимым.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ImportHistory> findCompletedImportByContentHash(String contentHash) {
+        return importHistoryRepository.findLatestCompletedByContentHash(contentHash);
+    }
+
     @Transactional(readOnly = true)
     public List<ImportHistory> getImportHistory() {
         return importHistoryRepository.findAll();
@@ -166,7 +120,7 @@ public class ImportService {
      * Импорт организаций с сохранением ссылки на файл в MinIO.
      * Используется для распределенной транзакции.
      */
-    @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = Exception.class)
+    @Transactional(isolation = Isolation.READ_COMMITTED, rollbackFor = Exception.class)
     public ImportHistory importOrganizationsWithFile(List<OrganizationImportDto> dtos, 
                                                       String username, 
                                                       String fileObjectName) {
@@ -176,112 +130,497 @@ public class ImportService {
         history.setFileObjectName(fileObjectName);
 
         try {
-            // Валидация всех объектов
-            List<String> validationErrors = new ArrayList<>();
-            for (int i = 0; i < dtos.size(); i++) {
-                OrganizationImportDto dto = dtos.get(i);
-                Set<ConstraintViolation<OrganizationImportDto>> violations = validator.validate(dto);
-                if (!violations.isEmpty()) {
-                    for (ConstraintViolation<OrganizationImportDto> violation : violations) {
-                        validationErrors.add("Организация #" + (i + 1) + ": " + violation.getMessage());
-                    }
-                }
-            }
+            ImportState state = newImportState();
+            importChunk(dtos, 0, state, ImportProgressListener.NONE);
+            throwIfInvalid(state);
+            organizationRepository.flush();
 
-            if (!validationErrors.isEmpty()) {
-                throw new IllegalArgumentException("Ошибки валидации: " + String.join("; ", validationErrors));
-            }
+            return completeHistory(history, state.importedCount);
 
-            // Проверка уникальности внутри импортируемого файла
-            Set<String> namesInImport = new HashSet<>();
-            Set<String> zipCodesInImport = new HashSet<>();
-            Set<Double> ratingsInImport = new HashSet<>();
+        } catch (Exception e) {
+            history.setStatus("FAILED");
+            history.setErrorMessage(describeError(e));
             
-            for (int i = 0; i < dtos.size(); i++) {
-                OrganizationImportDto dto = dtos.get(i);
-                
-                if (namesInImport.contains(dto.getName())) {
-                    throw new IllegalArgumentException("Организация #" + (i + 1) + 
-                        ": дублирующееся имя '" + dto.getName() + "' в файле импорта");
-                }
-                namesInImport.add(dto.getName());
+            try {
+                saveFailedHistoryWithFile(history);
+            } catch (Exception ex) {
+                // Игнорируем ошибки сохранения истории
+            }
+            
+            throw new RuntimeException("Импорт не выполнен: " + history.getErrorMessage(), e);
+        }
+    }
 
-                if (dto.getRating() != null) {
-                    ratingsInImport.add(dto.getRating());
-                }
+    /**
+     * Потоковый импорт организаций с сохранением ссылки на файл в MinIO.
+     * Файл читается порциями по chunkSize записей: каждая порция валидируется,
+     * проверяется на дубликаты и сохраняется, после чего контекст персистентности
+     * очищается. Объём памяти не зависит от размера файла.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, rollbackFor = Exception.class)
+    public ImportHistory importOrganizationsStream(OrganizationImportReader reader,
+                                                   String username,
+                                                   String fileObjectName,
+                                                   String contentHash,
+                                                   ImportProgressListener listener) {
+        ImportHistory history = new ImportHistory();
+        history.setUsername(username);
+        history.setTimestamp(java.time.LocalDateTime.now());
+        history.setFileObjectName(fileObjectName);
+        history.setContentHash(contentHash);
 
-                if (dto.getPostalAddress() != null) {
-                    String zipCode = dto.getPostalAddress().getZipCode();
-                    if (zipCodesInImport.contains(zipCode)) {
-                        throw new IllegalArgumentException("Организация #" + (i + 1) + 
-                            ": дублирующийся zipCode '" + zipCode + "' в файле импорта");
-                    }
-                    zipCodesInImport.add(zipCode);
+        try {
+            ImportState state = newImportState();
+            int offset = 0;
+            List<OrganizationImportDto> chunk;
+            while (!(chunk = reader.readChunk(chunkSize)).isEmpty()) {
+                if (offset + chunk.size() > maxRows) {
+                    throw new IllegalArgumentException(
+                        "Файл содержит больше " + maxRows + " организаций");
                 }
-
-                if (dto.getOfficialAddress() != null) {
-                    String zipCode = dto.getOfficialAddress().getZipCode();
-                    if (zipCodesInImport.contains(zipCode)) {
-                        throw new IllegalArgumentException("Организация #" + (i + 1) + 
-                            ": дублирующийся zipCode '" + zipCode + "' в файле импорта");
-                    }
-                    zipCodesInImport.add(zipCode);
+                listener.onParsed(offset + chunk.size());
+                importChunk(chunk, offset, state, listener);
+                offset += chunk.size();
+
+                organizationRepository.flush();
+                organizationRepository.clear();
+                if (state.validationErrors.isLimitExceeded()) {
+                    break;
                 }
             }
+            throwIfInvalid(state);
 
-            // Проверка уникальности по БД
-            for (String name : namesInImport) {
-                if (organizationRepository.existsByName(name)) {
-                    throw new IllegalArgumentException(
-                        "Организация с именем '" + name + "' уже существует в системе");
-                }
-            }
-            for (Double rating : ratingsInImport) {
-                if (!organizationRepository.findByRating(rating).isEmpty()) {
-                    throw new IllegalArgumentException(
-                        "Организация с рейтингом '" + rating + "' уже существует в системе");
-                }
+            if (offset == 0) {
+                throw new IllegalArgumentException("Файл не содержит организаций");
             }
 
-            // Создание организаций
-            int count = 0;
-            for (OrganizationImportDto dto : dtos) {
-                Organization organization = convertToEntity(dto);
-                organizationRepository.save(organization);
-                count++;
-                notificationService.notifyOrganizationCreated(organization.getId());
+            return completeHistory(history, state.importedCount);
+
+        } catch (Exception e) {
+            history.setStatus("FAILED");
+            history.setErrorMessage(describeError(e));
+
+            try {
+                saveFailedHistoryWithFile(history);
+            } catch (Exception ex) {
+                // Игнорируем ошибки сохранения истории
             }
 
-            organizationRepository.flush();
+            throw new RuntimeException("Импорт не выполнен: " + history.getErrorMessage(), e);
+        }
+    }
 
-            history.setStatus("SUCCESS");
-            history.setImportedCount(count);
-            importHistoryRepository.save(history);
-            importHistoryRepository.flush();
+    /**
+     * Импорт очень больших файлов через PostgreSQL COPY (см. CopyImportEngine).
+     * Правила валидации и уникальности те же, что у importOrganizationsStream.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, rollbackFor = Exception.class)
+    public ImportHistory importOrganizationsCopy(OrganizationImportReader reader,
+                                                 String username,
+                                                 String fileObjectName,
+                                                 String contentHash,
+                                                 ImportProgressListener listener) {
+        ImportHistory history = new ImportHistory();
+        history.setUsername(username);
+        history.setTimestamp(java.time.LocalDateTime.now());
+        history.setFileObjectName(fileObjectName);
+        history.setContentHash(contentHash);
 
-            return history;
+        try {
+            int count = copyImportEngine.importOrganizations(reader, maxRows, listener);
+            notificationService.notifyOrganizationsCreated();
+
+            return completeHistory(history, count);
 
         } catch (Exception e) {
             history.setStatus("FAILED");
-            history.setErrorMessage(e.getMessage());
-            
+            history.setErrorMessage(describeError(e));
+
             try {
                 saveFailedHistoryWithFile(history);
             } catch (Exception ex) {
                 // Игнорируем ошибки сохранения истории
             }
-            
-            throw new RuntimeException("Импорт не выполнен: " + e.getMessage(), e);
+
+            throw new RuntimeException("Импорт не выполнен: " + history.getErrorMessage(), e);
         }
     }
 
+    /**
+     * Потоковый импорт с пропуском невалидных строк.
+     * 
+     * Каждая порция фиксируется в отдельной транзакции: валидные строки
+     * сохраняются, отклонённые записываются с номером строки и причиной
+     * в import_row_errors. Статус истории: SUCCESS - отклонённых строк нет,
+     * PARTIAL - часть строк отклонена, FAILED - импорт прерван (ранее
+     * зафиксированные порции при этом остаются в БД).
+     * 
+     * @throws RuntimeException если импорт прерван до фиксации первой порции
+     */
+    public ImportHistory importOrganizationsSkippingInvalid(OrganizationImportReader reader,
+                                                            String username,
+                                                            String fileObjectName,
+                                                            String contentHash,
+                                                            ImportProgressListener listener) {
+        ImportHistory history = new ImportHistory();
+        history.setUsername(username);
+        history.setTimestamp(java.time.LocalDateTime.now());
+        history.setFileObjectName(fileObjectName);
+        history.setContentHash(contentHash);
+        history.setStatus("IN_PROGRESS");
+        transactionTemplate.executeWithoutResult(status -> importHistoryRepository.save(history));
+
+        ImportState state = newImportState();
+        int rejectedCount = 0;
+        try {
+            int offset = 0;
+            List<OrganizationImportDto> chunk;
+            Map<Integer, String> parseErrors = new TreeMap<>();
+            while (!(chunk = reader.readChunk(chunkSize, parseErrors)).isEmpty()) {
+                if (offset + chunk.size() > maxRows) {
+                    throw new IllegalArgumentException(
+                        "Файл содержит больше " + maxRows + " организаций");
+                }
+                listener.onParsed(offset + chunk.size());
+
+                List<OrganizationImportDto> rows = chunk;
+                Map<Integer, String> rowParseErrors = new TreeMap<>(parseErrors);
+                parseErrors.clear();
+                int chunkOffset = offset;
+                ChunkResult result;
+                try {
+                    result = transactionTemplate.execute(status -> importChunkSkippingInvalid(
+                        rows, rowParseErrors, chunkOffset, state, history, listener));
+                } catch (RuntimeException e) {
+                    // Строки порции откачены: их координаты и адреса забываются
+                    state.entities.rollback();
+                    throw e;
+                }
+                // Состояние импорта обновляется только после фиксации порции
+                state.entities.commit();
+                state.namesInImport.addAll(result.acceptedNames);
+                state.zipCodesInImport.addAll(result.acceptedZipCodes);
+                state.ratingsInImport.addAll(result.acceptedRatings);
+                state.importedCount += result.importedCount;
+                rejectedCount += result.rejectedCount;
+                listener.onInserted(state.importedCount);
+                offset += chunk.size();
+            }
+
+            if (offset == 0) {
+                throw new IllegalArgumentException("Файл не содержит организаций");
+            }
+            history.setStatus(rejectedCount == 0 ? "SUCCESS" : "PARTIAL");
+
+        } catch (Exception e) {
+            history.setStatus("FAILED");
+            history.setErrorMessage(describeError(e));
+        }
+
+        history.setImportedCount(state.importedCount);
+        history.setRejectedCount(rejectedCount);
+        transactionTemplate.executeWithoutResult(status -> importHistoryRepository.save(history));
+
+        if ("FAILED".equals(history.getStatus()) && state.importedCount == 0) {
+            throw new RuntimeException("Импорт не выполнен: " + history.getErrorMessage());
+        }
+        return history;
+    }
+
+    /**
+     * Отклонённые строки импорта, постранично.
+     */
+    @Transactional(readOnly = true)
+    public List<ImportRowError> getRowErrors(Long historyId, int page, int size) {
+        return importRowErrorRepository.findByImportHistoryId(historyId, page, size);
+    }
+
+    @Transactional(readOnly = true)
+    public long countRowErrors(Long historyId) {
+        return importRowErrorRepository.countByImportHistoryId(historyId);
+    }
+
     @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
     protected void saveFailedHistoryWithFile(ImportHistory history) {
         importHistoryRepository.save(history);
         importHistoryRepository.flush();
     }
 
-    private Organization convertToEntity(OrganizationImportDto dto) {
+    /**
+     * Обработать порцию организаций: валидация, проверка уникальности и сохранение.
+     *
+     * @param chunk порция DTO
+     * @param offset номер первой записи порции в файле (с нуля)
+     * @param state состояние импорта, общее для всех порций файла
+     * @param listener получатель событий о прогрессе
+     */
+    private void importChunk(List<OrganizationImportDto> chunk, int offset, ImportState state,
+                             ImportProgressListener listener) {
+        // Валидация всех объектов (параллельно, см. ImportValidationService).
+        // Ошибки копятся по всему файлу до лимита; после первой ошибки строки
+        // не сохраняются, а импорт завершается в throwIfInvalid
+        validationService.validate(chunk, offset, state.validationErrors);
+        listener.onValidated(offset + chunk.size());
+        if (state.validationErrors.hasErrors()) {
+            return;
+        }
+
+        // Проверка уникальности внутри импортируемого файла
+        Set<String> namesInChunk = new HashSet<>();
+        Set<Double> ratingsInChunk = new HashSet<>();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            OrganizationImportDto dto = chunk.get(i);
+            int rowNumber = offset + i + 1;
+
+            // Проверка уникальности имени внутри файла
+            if (!state.namesInImport.add(dto.getName())) {
+                throw new IllegalArgumentException("Организация #" + rowNumber + 
+                    ": дублирующееся имя '" + dto.getName() + "' в файле импорта");
+            }
+            namesInChunk.add(dto.getName());
+
+            // Проверка уникальности рейтинга внутри файла; рейтинги порции
+            // затем проверяются против БД
+            if (dto.getRating() != null) {
+                if (!state.ratingsInImport.add(dto.getRating())) {
+                    throw new IllegalArgumentException("Организация #" + rowNumber +
+                        ": дублирующийся рейтинг '" + dto.getRating() + "' в файле импорта");
+                }
+                ratingsInChunk.add(dto.getRating());
+            }
+
+            // Проверка уникальности zipCode внутри файла (только внутри файла, не в БД)
+            if (dto.getPostalAddress() != null) {
+                checkZipCodeInFile(dto.getPostalAddress().getZipCode(), rowNumber, state);
+            }
+            if (dto.getOfficialAddress() != null) {
+                checkZipCodeInFile(dto.getOfficialAddress().getZipCode(), rowNumber, state);
+            }
+        }
+
+        // Проверка уникальности по БД: имя и рейтинг не должны уже существовать.
+        // Проверяется вся порция сразу, запросами с IN (...). Advisory-блокировки
+        // здесь не берутся: транзакция охватывает весь файл, и блокировки по
+        // порциям не упорядочены глобально. Параллельный импорт тех же значений
+        // отсекают уникальные ограничения (взаимоблокировка - повтором импорта)
+        Set<String> existingNames = organizationRepository.findExistingNames(namesInChunk);
+        if (!existingNames.isEmpty()) {
+            throw new IllegalArgumentException(
+                "Организация с именем '" + existingNames.iterator().next() + "' уже существует в системе");
+        }
+        Set<Double> existingRatings = organizationRepository.findExistingRatings(ratingsInChunk);
+        if (!existingRatings.isEmpty()) {
+            throw new IllegalArgumentException(
+                "Организация с рейтингом '" + existingRatings.iterator().next() + "' уже существует в системе");
+        }
+
+        // Создание организаций
+        state.importedCount += saveOrganizations(chunk, state);
+        // Порция выполняется в общей транзакции файла и отдельно не откатывается:
+        // её ключи в кэше сразу считаются зафиксированными, список не растёт с файлом
+        state.entities.commit();
+        listener.onInserted(state.importedCount);
+    }
+
+    /**
+     * Обработать порцию в режиме пропуска невалидных строк. Выполняется в
+     * транзакции порции: строки, не прошедшие валидацию или проверку
+     * уникальности, записываются в import_row_errors, остальные сохраняются.
+     * Состояние импорта (имена, zipCode, счётчик) не меняется: вызывающий
+     * применяет результат после фиксации транзакции.
+     *
+     * @return итог порции
+     */
+    private ChunkResult importChunkSkippingInvalid(List<OrganizationImportDto> chunk, Map<Integer, String> parseErrors,
+                                                   int offset, ImportState state,
+                                                   ImportHistory history, ImportProgressListener listener) {
+        // Причины отклонения по индексу строки в порции; неразобранные строки отклонены сразу
+        Map<Integer, String> rejected = new TreeMap<>(parseErrors);
+        for (ImportValidationService.RowError error : validationService.validateRows(chunk, offset)) {
+            rejected.merge(error.getRowNumber() - offset - 1, error.getMessage(), (a, b) -> a + "; " + b);
+        }
+        listener.onValidated(offset + chunk.size());
+
+        // Проверка уникальности внутри файла: первая строка с именем, zipCode или рейтингом принимается
+        Set<String> namesInChunk = new HashSet<>();
+        Set<String> zipCodesInChunk = new HashSet<>();
+        Set<Double> ratingsInChunk = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (rejected.containsKey(i)) {
+                continue;
+            }
+            OrganizationImportDto dto = chunk.get(i);
+            String duplicate = findDuplicateInFile(dto, state, namesInChunk, zipCodesInChunk, ratingsInChunk);
+            if (duplicate != null) {
+                rejected.put(i, duplicate);
+                continue;
+            }
+            // Ключи запоминаются только у принятой строки, отклонённая не блокирует следующие
+            namesInChunk.add(dto.getName());
+            zipCodesInChunk.addAll(zipCodesOf(dto));
+            if (dto.getRating() != null) {
+                ratingsInChunk.add(dto.getRating());
+            }
+        }
+
+        // Проверка уникальности по БД
+        lockUniqueKeys(namesInChunk, ratingsInChunk);
+        Set<String> existingNames = organizationRepository.findExistingNames(namesInChunk);
+        Set<Double> existingRatings = organizationRepository.findExistingRatings(ratingsInChunk);
+        List<OrganizationImportDto> accepted = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (rejected.containsKey(i)) {
+                continue;
+            }
+            OrganizationImportDto dto = chunk.get(i);
+            if (existingNames.contains(dto.getName())) {
+                rejected.put(i, "организация с именем '" + dto.getName() + "' уже существует в системе");
+            } else if (dto.getRating() != null && existingRatings.contains(dto.getRating())) {
+                rejected.put(i, "организация с рейтингом '" + dto.getRating() + "' уже существует в системе");
+            } else {
+                accepted.add(dto);
+            }
+        }
+
+        ImportHistory historyReference = importHistoryRepository.getReference(history.getId());
+        for (Map.Entry<Integer, String> entry : rejected.entrySet()) {
+            importRowErrorRepository.save(new ImportRowError(
+                historyReference, offset + entry.getKey() + 1, truncate(entry.getValue())));
+        }
+
+        int importedCount = saveOrganizations(accepted, state);
+        return new ChunkResult(accepted, importedCount, rejected.size());
+    }
+
+    /**
+     * Причина, по которой строка повторяет уже принятые строки файла, или null.
+     */
+    private static String findDuplicateInFile(OrganizationImportDto dto, ImportState state, Set<String> namesInChunk,
+                                              Set<String> zipCodesInChunk, Set<Double> ratingsInChunk) {
+        if (state.namesInImport.contains(dto.getName()) || namesInChunk.contains(dto.getName())) {
+            return "дублирующееся имя '" + dto.getName() + "' в файле импорта";
+        }
+        Set<String> zipCodesInRow = new HashSet<>();
+        for (String zipCode : zipCodesOf(dto)) {
+            if (state.zipCodesInImport.contains(zipCode) || zipCodesInChunk.contains(zipCode)
+                    || !zipCodesInRow.add(zipCode)) {
+                return "дублирующийся zipCode '" + zipCode + "' в файле импорта";
+            }
+        }
+        Double rating = dto.getRating();
+        if (rating != null && (state.ratingsInImport.contains(rating) || ratingsInChunk.contains(rating))) {
+            return "дублирующийся рейтинг '" + rating + "' в файле импорта";
+        }
+        return null;
+    }
+
+    /**
+     * Сохранить организации порции. Координаты и адреса загружаются заранее,
+     * пакеты INSERT периодически сбрасываются в БД.
+     *
+     * @return количество сохранённых организаций
+     */
+    private int saveOrganizations(List<OrganizationImportDto> rows, ImportState state) {
+        state.entities.preload(rows);
+        int saved = 0;
+        for (OrganizationImportDto dto : rows) {
+            Organization organization = convertToEntity(dto, state.entities);
+            organizationRepository.save(organization);
+            state.entities.remember(organization);
+            saved++;
+            notificationService.notifyOrganizationCreated(organization.getId());
+
+            // Периодический сброс пакета INSERT в БД и очистка контекста персистентности
+            if (saved % flushInterval == 0) {
+                organizationRepository.flush();
+                organizationRepository.clear();
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Взять advisory-блокировки на имена и рейтинги порции перед проверкой по БД,
+     * чтобы параллельный импорт с теми же значениями дождался фиксации этого.
+     * 
+     * Используется только там, где порция - отдельная транзакция: все ключи
+     * транзакции берутся одним вызовом в порядке возрастания до вставки строк,
+     * поэтому такие транзакции не блокируют друг друга взаимно. Блокировки
+     * занимают общую таблицу блокировок PostgreSQL; если ключей порции больше
+     * lockMaxKeys, они не берутся, и дубликаты отсекают уникальные ограничения.
+     */
+    private void lockUniqueKeys(Set<String> names, Set<Double> ratings) {
+        if (names.size() + ratings.size() <= lockMaxKeys) {
+            organizationRepository.lockNamesAndRatings(names, ratings);
+        }
+    }
+
+    /**
+     * Сообщение об ошибке импорта. Нарушение уникальных ограничений при
+     * параллельном импорте описывается так же, как при проверке по БД.
+     */
+    private static String describeError(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraint = ((ConstraintViolationException) cause).getConstraintName();
+                if ("uk_organizations_name".equals(constraint)) {
+                    return "Организация с таким именем уже существует в системе";
+                }
+                if ("uk_organizations_rating".equals(constraint)) {
+                    return "Организация с таким рейтингом уже существует в системе";
+                }
+            }
+        }
+        return e.getMessage();
+    }
+
+    private static List<String> zipCodesOf(OrganizationImportDto dto) {
+        List<String> zipCodes = new ArrayList<>(2);
+        if (dto.getPostalAddress() != null) {
+            zipCodes.add(dto.getPostalAddress().getZipCode());
+        }
+        if (dto.getOfficialAddress() != null) {
+            zipCodes.add(dto.getOfficialAddress().getZipCode());
+        }
+        return zipCodes;
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 997) + "...";
+    }
+
+    private void checkZipCodeInFile(String zipCode, int rowNumber, ImportState state) {
+        if (!state.zipCodesInImport.add(zipCode)) {
+            throw new IllegalArgumentException("Организация #" + rowNumber + 
+                ": дублирующийся zipCode '" + zipCode + "' в файле импорта");
+        }
+    }
+
+    private ImportState newImportState() {
+        return new ImportState(new ImportEntityCache(coordinatesRepository, addressRepository),
+            validationService.newValidationErrors());
+    }
+
+    /**
+     * Прервать импорт, если при валидации файла найдены ошибки
+     */
+    private static void throwIfInvalid(ImportState state) {
+        if (state.validationErrors.hasErrors()) {
+            throw new IllegalArgumentException(
+                "Ошибки валидации: " + String.join("; ", state.validationErrors.getMessages()));
+        }
+    }
+
+    private ImportHistory completeHistory(ImportHistory history, int importedCount) {
+        history.setStatus("SUCCESS");
+        history.setImportedCount(importedCount);
+        importHistoryRepository.save(history);
+        importHistoryRepository.flush();
+        return history;
+    }
+
+    private Organization convertToEntity(OrganizationImportDto dto, ImportEntityCache entities) {
         Organization organization = new Organization();
         organization.setName(dto.getName());
         organization.setAnnualTurnover(dto.getAnnualTurnover());
@@ -295,38 +634,64 @@ public class ImportService {
             throw new IllegalArgumentException("Неверный тип организации: " + dto.getType());
         }
 
-        // Coordinates
+        // Coordinates: существующие в БД или созданные ранее в этом импорте
         if (dto.getCoordinates() != null) {
-            Coordinates coordinates = new Coordinates();
-            coordinates.setX(dto.getCoordinates().getX());
-            coordinates.setY(dto.getCoordinates().getY());
-            
-            // Проверяем существование координат
-            List<Coordinates> existingCoords = coordinatesRepository.findByXAndY(
-                coordinates.getX(), coordinates.getY());
-            if (!existingCoords.isEmpty()) {
-                organization.setCoordinates(existingCoords.get(0));
-            } else {
-                organization.setCoordinates(coordinates);
-            }
+            organization.setCoordinates(entities.resolveCoordinates(
+                dto.getCoordinates().getX(), dto.getCoordinates().getY()));
         }
 
         // Postal Address
         if (dto.getPostalAddress() != null) {
-            Address postalAddress = new Address();
-            postalAddress.setStreet(dto.getPostalAddress().getStreet());
-            postalAddress.setZipCode(dto.getPostalAddress().getZipCode());
-            organization.setPostalAddress(postalAddress);
+            organization.setPostalAddress(entities.resolveAddress(
+                dto.getPostalAddress().getStreet(), dto.getPostalAddress().getZipCode()));
         }
 
         // Official Address
         if (dto.getOfficialAddress() != null) {
-            Address officialAddress = new Address();
-            officialAddress.setStreet(dto.getOfficialAddress().getStreet());
-            officialAddress.setZipCode(dto.getOfficialAddress().getZipCode());
-            organization.setOfficialAddress(officialAddress);
+            organization.setOfficialAddress(entities.resolveAddress(
+                dto.getOfficialAddress().getStreet(), dto.getOfficialAddress().getZipCode()));
         }
 
         return organization;
     }
+
+    /**
+     * Итог порции, обработанной в собственной транзакции.
+     */
+    private static class ChunkResult {
+        private final Set<String> acceptedNames = new HashSet<>();
+        private final Set<String> acceptedZipCodes = new HashSet<>();
+        private final Set<Double> acceptedRatings = new HashSet<>();
+        private final int importedCount;
+        private final int rejectedCount;
+
+        private ChunkResult(List<OrganizationImportDto> accepted, int importedCount, int rejectedCount) {
+            for (OrganizationImportDto dto : accepted) {
+                acceptedNames.add(dto.getName());
+                acceptedZipCodes.addAll(zipCodesOf(dto));
+                if (dto.getRating() != null) {
+                    acceptedRatings.add(dto.getRating());
+                }
+            }
+            this.importedCount = importedCount;
+            this.rejectedCount = rejectedCount;
+        }
+    }
+
+    /**
+     * Состояние импорта одного файла, разделяемое между порциями.
+     */
+    private static class ImportState {
+        private final Set<String> namesInImport = new HashSet<>();
+        private final Set<String> zipCodesInImport = new HashSet<>();
+        private final Set<Double> ratingsInImport = new HashSet<>();
+        private final ImportEntityCache entities;
+        private final ImportValidationService.ValidationErrors validationErrors;
+        private int importedCount;
+
+        private ImportState(ImportEntityCache entities, ImportValidationService.ValidationErrors validationErrors) {
+            this.entities = entities;
+            this.validationErrors = validationErrors;
+        }
+    }
 }
@@ -0,0 +1,235 @@
+package org.itmo.lab3.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.itmo.lab3.dto.OrganizationImportDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Параллельная валидация порций импорта.
+ *
+ * Порция делится на срезы по sliceSize записей, срезы проверяются
+ * в пуле validationExecutor. Ошибки возвращаются в порядке строк файла.
+ * Число ошибок ограничено maxErrors на весь импорт (см. ValidationErrors):
+ * для заведомо невалидного файла нет смысла валидировать его целиком.
+ */
+@Service
+public class ImportValidationService {
+
+    private final Validator validator;
+    private final TaskExecutor validationExecutor;
+    private final int sliceSize;
+    private final int maxErrors;
+
+    @Autowired
+    public ImportValidationService(Validator validator,
+                                   @Qualifier("validationExecutor") TaskExecutor validationExecutor,
+                                   @Value("${import.validation.slice-size:64}") int sliceSize,
+                                   @Value("${import.validation.max-errors:100}") int maxErrors) {
+        this.validator = validator;
+        this.validationExecutor = validationExecutor;
+        this.sliceSize = Math.max(1, sliceSize);
+        this.maxErrors = Math.max(1, maxErrors);
+    }
+
+    /**
+     * Новый накопитель ошибок одного импорта с лимитом maxErrors
+     */
+    public ValidationErrors newValidationErrors() {
+        return new ValidationErrors(maxErrors);
+    }
+
+    /**
+     * Bean Validation DTO порции.
+     *
+     * @param rows порция DTO
+     * @param offset номер первой записи порции в файле (с нуля)
+     * @param errors ошибки импорта, в которые добавляются ошибки порции
+     */
+    public void validate(List<OrganizationImportDto> rows, int offset, ValidationErrors errors) {
+        validate(rows, offset, errors, dto -> Collections.emptyList());
+    }
+
+    /**
+     * Bean Validation DTO порции и дополнительные проверки строки.
+     * Если лимит ошибок импорта уже превышен, порция не проверяется.
+     *
+     * @param rows порция DTO
+     * @param offset номер первой записи порции в файле (с нуля)
+     * @param errors ошибки импорта, в которые добавляются ошибки порции
+     * @param extraChecks дополнительные проверки строки; должны быть потокобезопасны
+     */
+    public void validate(List<OrganizationImportDto> rows, int offset, ValidationErrors errors,
+                         Function<OrganizationImportDto, List<String>> extraChecks) {
+        if (errors.isLimitExceeded()) {
+            return;
+        }
+        errors.addAll(validateRows(rows, offset, extraChecks, errors.remaining()));
+    }
+
+    /**
+     * Bean Validation DTO порции без ограничения числа ошибок.
+     * Используется в режиме пропуска невалидных строк, где нужен полный список.
+     *
+     * @param rows порция DTO; null - строка, которую не удалось разобрать, она пропускается
+     * @param offset номер первой записи порции в файле (с нуля)
+     * @return ошибки в порядке строк; у одной строки может быть несколько ошибок
+     */
+    public List<RowError> validateRows(List<OrganizationImportDto> rows, int offset) {
+        return validateRows(rows, offset, dto -> Collections.emptyList(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Проверить строки порции. Каждый срез останавливается после errorLimit
+     * собственных ошибок: его дальнейшие строки идут позже и в первые
+     * errorLimit ошибок порции уже не попадут. Срезы не зависят друг от друга,
+     * поэтому результат одинаков при любом порядке их выполнения.
+     */
+    private List<RowError> validateRows(List<OrganizationImportDto> rows, int offset,
+                                        Function<OrganizationImportDto, List<String>> extraChecks,
+                                        int errorLimit) {
+        // Маленькие порции проверяются в текущем потоке
+        if (rows.size() <= sliceSize) {
+            return validateSlice(rows, offset, 0, rows.size(), extraChecks, errorLimit);
+        }
+
+        List<CompletableFuture<List<RowError>>> slices = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += sliceSize) {
+            int start = from;
+            int end = Math.min(from + sliceSize, rows.size());
+            slices.add(CompletableFuture.supplyAsync(
+                () -> validateSlice(rows, offset, start, end, extraChecks, errorLimit),
+                validationExecutor));
+        }
+
+        List<RowError> errors = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<RowError>> slice : slices) {
+                errors.addAll(slice.join());
+            }
+        } catch (CompletionException e) {
+            slices.forEach(slice -> slice.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return errors;
+    }
+
+    private List<RowError> validateSlice(List<OrganizationImportDto> rows, int offset, int from, int to,
+                                         Function<OrganizationImportDto, List<String>> extraChecks,
+                                         int errorLimit) {
+        List<RowError> errors = new ArrayList<>();
+        for (int i = from; i < to && errors.size() < errorLimit; i++) {
+            OrganizationImportDto dto = rows.get(i);
+            if (dto == null) {
+                continue;
+            }
+            int rowNumber = offset + i + 1;
+
+            for (ConstraintViolation<OrganizationImportDto> violation : validator.validate(dto)) {
+                errors.add(new RowError(rowNumber, violation.getMessage()));
+            }
+            for (String message : extraChecks.apply(dto)) {
+                errors.add(new RowError(rowNumber, message));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Ошибки валидации одного импорта.
+     *
+     * Хранятся первые maxErrors ошибок в порядке строк файла. Проверка идёт,
+     * пока не найдена ошибка сверх лимита: только тогда известно, что список
+     * обрезан, и к сообщениям добавляется пометка об остановке.
+     */
+    public static class ValidationErrors {
+        private final int maxErrors;
+        private final List<RowError> errors = new ArrayList<>();
+        private boolean limitExceeded;
+
+        public ValidationErrors(int maxErrors) {
+            this.maxErrors = Math.max(1, maxErrors);
+        }
+
+        /**
+         * Сколько ещё ошибок нужно найти, чтобы узнать о превышении лимита
+         */
+        int remaining() {
+            return maxErrors + 1 - errors.size();
+        }
+
+        void addAll(List<RowError> found) {
+            errors.addAll(found);
+            errors.sort(Comparator.comparingInt(RowError::getRowNumber));
+            if (errors.size() > maxErrors) {
+                errors.subList(maxErrors, errors.size()).clear();
+                limitExceeded = true;
+            }
+        }
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+
+        /**
+         * Найдено больше maxErrors ошибок: дальнейшая проверка не нужна
+         */
+        public boolean isLimitExceeded() {
+            return limitExceeded;
+        }
+
+        public List<RowError> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        /**
+         * Сообщения об ошибках в порядке строк, с пометкой, если список обрезан
+         */
+        public List<String> getMessages() {
+            List<String> messages = new ArrayList<>(errors.size() + 1);
+            for (RowError error : errors) {
+                messages.add("Организация #" + error.getRowNumber() + ": " + error.getMessage());
+            }
+            if (limitExceeded) {
+                messages.add("проверка остановлена после " + maxErrors + " ошибок");
+            }
+            return messages;
+        }
+    }
+
+    /**
+     * Ошибка валидации строки файла импорта.
+     */
+    public static class RowError {
+        private final int rowNumber;
+        private final String message;
+
+        public RowError(int rowNumber, String message) {
+            this.rowNumber = rowNumber;
+            this.message = message;
+        }
+
+        public int getRowNumber() {
+            return rowNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
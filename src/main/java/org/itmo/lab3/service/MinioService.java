@@ -2,16 +2,23 @@ package org.itmo.lab3.service;
 
 import io.minio.*;
 import io.minio.errors.*;
+import org.itmo.lab3.util.GzipCompressingInputStream;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Сервис для работы с MinIO (S3-совместимое хранилище).
@@ -27,13 +34,42 @@ public class MinioService implements InitializingBean {
 
     private static final Logger logger = Logger.getLogger(MinioService.class.getName());
 
+    /**
+     * Минимальный размер части multipart-загрузки, допускаемый S3 (5MB)
+     */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    /**
+     * Максимальное количество частей multipart-загрузки в S3
+     */
+    private static final long MAX_PARTS = 10_000;
+
+    /**
+     * Метаданные объекта (x-amz-meta-*): алгоритм сжатия и исходный размер
+     */
+    private static final String HEADER_META_PREFIX = "x-amz-meta-";
+    private static final String META_COMPRESSION = "compression";
+    private static final String META_ORIGINAL_SIZE = "original-size";
+    private static final String COMPRESSION_GZIP = "gzip";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final MinioClient minioClient;
     private final String bucketName;
+    private final long partSize;
+    private final String compression;
 
     @Autowired
-    public MinioService(MinioClient minioClient, @Qualifier("minioBucket") String bucketName) {
+    public MinioService(MinioClient minioClient, 
+                        @Qualifier("minioBucket") String bucketName,
+                        @Value("${minio.partSize:10485760}") long partSize,
+                        @Value("${minio.compression:gzip}") String compression) {
         this.minioClient = minioClient;
         this.bucketName = bucketName;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.compression = compression.trim().toLowerCase();
+        if (!COMPRESSION_GZIP.equals(this.compression) && !"none".equals(this.compression)) {
+            throw new IllegalArgumentException("Unsupported minio.compression: " + compression);
+        }
     }
 
     /**
@@ -66,42 +102,171 @@ public class MinioService implements InitializingBean {
      */
     public String uploadFile(byte[] content, String originalFileName, String contentType) 
             throws MinioUploadException {
+        return uploadFile(new ByteArrayInputStream(content), content.length, originalFileName, contentType);
+    }
+
+    /**
+     * Загрузить файл в MinIO из потока, не читая его целиком в память.
+     * 
+     * Поток загружается multipart-загрузкой частями по partSize байт, поэтому
+     * в памяти одновременно находится не больше одной части. Если размер
+     * неизвестен (например, поток сжимается на лету), передаётся -1.
+     * 
+     * @param inputStream поток с содержимым файла
+     * @param size размер файла в байтах или -1, если размер неизвестен
+     * @param originalFileName оригинальное имя файла
+     * @param contentType MIME тип файла
+     * @return уникальное имя объекта в MinIO
+     */
+    public String uploadFile(InputStream inputStream, long size, String originalFileName, String contentType)
+            throws MinioUploadException {
         String objectName = generateObjectName(originalFileName);
         
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(content)) {
+        InputStream body = inputStream;
+        long bodySize = size;
+        Map<String, String> metadata = new HashMap<>();
+        try {
+            if (COMPRESSION_GZIP.equals(compression)) {
+                // Размер сжатого потока неизвестен: multipart-загрузка частями partSize
+                body = new GzipCompressingInputStream(inputStream);
+                bodySize = -1;
+                metadata.put(META_COMPRESSION, COMPRESSION_GZIP);
+                if (size >= 0) {
+                    metadata.put(META_ORIGINAL_SIZE, Long.toString(size));
+                }
+            }
             minioClient.putObject(
                 PutObjectArgs.builder()
                     .bucket(bucketName)
                     .object(objectName)
-                    .stream(inputStream, content.length, -1)
+                    .stream(body, bodySize, partSizeFor(bodySize))
                     .contentType(contentType != null ? contentType : "application/octet-stream")
+                    .userMetadata(metadata)
                     .build()
             );
-            logger.info("Uploaded file to MinIO: " + objectName);
+            logger.info("Uploaded file to MinIO: " + objectName 
+                + (metadata.isEmpty() ? "" : " (" + compression + ")"));
             return objectName;
         } catch (Exception e) {
             throw new MinioUploadException("Failed to upload file to MinIO: " + e.getMessage(), e);
+        } finally {
+            if (body != inputStream) {
+                closeQuietly(body);
+            }
         }
     }
 
     /**
-     * Скачать файл из MinIO.
+     * Скачать файл из MinIO целиком в память.
+     * Для файлов импорта используйте openFile: они могут быть большими.
      * 
      * @param objectName имя объекта в MinIO
      * @return содержимое файла
      */
     public byte[] downloadFile(String objectName) throws MinioDownloadException {
-        try (InputStream stream = minioClient.getObject(
+        try (InputStream stream = openFile(objectName)) {
+            return stream.readAllBytes();
+        } catch (IOException e) {
+            throw new MinioDownloadException("Failed to download file from MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Открыть поток чтения файла из MinIO.
+     * Сжатые при загрузке файлы распаковываются на лету.
+     * Вызывающий обязан закрыть поток: он держит HTTP-соединение с MinIO.
+     * 
+     * @param objectName имя объекта в MinIO
+     * @return поток с исходным содержимым файла
+     */
+    public InputStream openFile(String objectName) throws MinioDownloadException {
+        GetObjectResponse response = null;
+        try {
+            response = minioClient.getObject(
                 GetObjectArgs.builder()
                     .bucket(bucketName)
                     .object(objectName)
-                    .build())) {
-            return stream.readAllBytes();
+                    .build());
+            if (COMPRESSION_GZIP.equals(response.headers().get(HEADER_META_PREFIX + META_COMPRESSION))) {
+                return new GZIPInputStream(response, BUFFER_SIZE);
+            }
+            return response;
+        } catch (Exception e) {
+            closeQuietly(response);
+            throw new MinioDownloadException("Failed to download file from MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Открыть поток чтения диапазона байт исходного содержимого файла (HTTP Range).
+     * Для несжатого файла диапазон читается из MinIO напрямую; сжатый файл
+     * распаковывается с начала, байты до offset пропускаются.
+     * 
+     * @param file метаданные файла (statFile)
+     * @param offset смещение первого байта исходного содержимого
+     * @param length количество байт
+     * @return поток с содержимым диапазона; закрывает вызывающий
+     */
+    public InputStream openFile(StoredFileInfo file, long offset, long length) throws MinioDownloadException {
+        if (!file.isCompressed()) {
+            return openStoredFile(file, offset, length);
+        }
+        InputStream content = openFile(file.getObjectName());
+        try {
+            content.skipNBytes(offset);
+            return new LimitedInputStream(content, length);
+        } catch (IOException e) {
+            closeQuietly(content);
+            throw new MinioDownloadException("Failed to download file from MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Открыть поток чтения диапазона байт объекта в том виде, в котором
+     * он хранится в MinIO (для сжатого файла - gzip).
+     * 
+     * @param file метаданные файла (statFile)
+     * @param offset смещение первого байта объекта
+     * @param length количество байт
+     * @return поток с содержимым диапазона; закрывает вызывающий
+     */
+    public InputStream openStoredFile(StoredFileInfo file, long offset, long length) throws MinioDownloadException {
+        try {
+            return minioClient.getObject(
+                GetObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(file.getObjectName())
+                    .offset(offset)
+                    .length(length)
+                    .build());
         } catch (Exception e) {
             throw new MinioDownloadException("Failed to download file from MinIO: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Метаданные файла в MinIO без чтения содержимого.
+     * 
+     * @param objectName имя объекта в MinIO
+     * @return размер, ETag, время изменения и сжатие объекта
+     */
+    public StoredFileInfo statFile(String objectName) throws MinioDownloadException {
+        try {
+            StatObjectResponse stat = minioClient.statObject(
+                StatObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .build());
+            String storedCompression = stat.userMetadata().get(META_COMPRESSION);
+            String originalSize = stat.userMetadata().get(META_ORIGINAL_SIZE);
+            return new StoredFileInfo(objectName, stat.size(), stat.etag(),
+                stat.lastModified().toInstant().toEpochMilli(), stat.contentType(),
+                storedCompression, originalSize != null ? Long.parseLong(originalSize) : -1);
+        } catch (Exception e) {
+            throw new MinioDownloadException("Failed to stat file in MinIO: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Удалить файл из MinIO.
      * 
@@ -148,6 +313,27 @@ public class MinioService implements InitializingBean {
         }
     }
 
+    /**
+     * Размер части multipart-загрузки. Для известного размера partSize
+     * увеличивается, только если иначе частей будет больше, чем допускает S3.
+     */
+    private long partSizeFor(long size) {
+        if (size > partSize * MAX_PARTS) {
+            return -1; // MinIO подберёт размер части сам
+        }
+        return partSize;
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+                // Основная ошибка важнее
+            }
+        }
+    }
+
     /**
      * Генерация уникального имени объекта.
      */
@@ -163,6 +349,113 @@ public class MinioService implements InitializingBean {
         return bucketName;
     }
 
+    /**
+     * Метаданные объекта в MinIO.
+     */
+    public static class StoredFileInfo {
+        private final String objectName;
+        private final long size;
+        private final String etag;
+        private final long lastModified;
+        private final String contentType;
+        private final String compression;
+        private final long originalSize;
+
+        public StoredFileInfo(String objectName, long size, String etag, long lastModified, String contentType,
+                              String compression, long originalSize) {
+            this.objectName = objectName;
+            this.size = size;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.compression = compression;
+            this.originalSize = originalSize;
+        }
+
+        public String getObjectName() {
+            return objectName;
+        }
+
+        /**
+         * Размер объекта в MinIO (для сжатого файла - размер gzip)
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * ETag объекта без кавычек
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Время последнего изменения, миллисекунды epoch
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Алгоритм сжатия объекта или null, если объект не сжат
+         */
+        public String getCompression() {
+            return compression;
+        }
+
+        public boolean isCompressed() {
+            return compression != null;
+        }
+
+        /**
+         * Размер исходного содержимого; -1, если неизвестен
+         */
+        public long getContentLength() {
+            return isCompressed() ? originalSize : size;
+        }
+    }
+
+    /**
+     * Поток, отдающий не больше limit байт исходного потока.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = super.read();
+            if (value != -1) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read != -1) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+
     // Custom exceptions
     public static class MinioUploadException extends Exception {
         public MinioUploadException(String message, Throwable cause) {
@@ -0,0 +1,245 @@
+package org.itmo.lab3.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Агрегатор уведомлений об изменении организаций.
+ * 
+ * События не рассылаются сразу: они копятся в течение окна window-ms и
+ * уходят в /topic/organizations одним сообщением на действие со списком id.
+ * Внутри транзакции события копятся в буфере транзакции и попадают в окно
+ * только после коммита; при откате они отбрасываются.
+ * 
+ * Ограничение для медленных подписчиков: сообщение не длиннее max-ids
+ * идентификаторов. При переполнении список отбрасывается, и клиент получает
+ * действие без id (обновить всё) - память буфера тоже не растёт.
+ */
+@Component
+public class NotificationAggregator {
+
+    private static final Logger logger = Logger.getLogger(NotificationAggregator.class.getName());
+
+    private static final String TOPIC = "/topic/organizations";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TaskScheduler taskScheduler;
+    private final long windowMillis;
+    private final int maxIds;
+
+    private final Object lock = new Object();
+    private PendingNotifications pending = new PendingNotifications();
+    private boolean flushScheduled;
+
+    @Autowired
+    public NotificationAggregator(SimpMessagingTemplate messagingTemplate,
+                                  @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler,
+                                  @Value("${notifications.window-ms:250}") long windowMillis,
+                                  @Value("${notifications.max-ids:500}") int maxIds) {
+        this.messagingTemplate = messagingTemplate;
+        this.taskScheduler = taskScheduler;
+        this.windowMillis = windowMillis;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Добавить событие по одной организации
+     */
+    public void add(String action, Long organizationId) {
+        PendingNotifications target = currentBuffer();
+        if (target != null) {
+            target.add(action, organizationId, maxIds);
+            return;
+        }
+        synchronized (lock) {
+            pending.add(action, organizationId, maxIds);
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Добавить событие по нескольким организациям
+     */
+    public void addAll(String action, Collection<Long> organizationIds) {
+        PendingNotifications target = currentBuffer();
+        if (target != null) {
+            target.addAll(action, organizationIds, maxIds);
+            return;
+        }
+        synchronized (lock) {
+            pending.addAll(action, organizationIds, maxIds);
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Добавить событие без идентификаторов (изменено неизвестное число организаций)
+     */
+    public void addBulk(String action) {
+        PendingNotifications target = currentBuffer();
+        if (target != null) {
+            target.addBulk(action);
+            return;
+        }
+        synchronized (lock) {
+            pending.addBulk(action);
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Буфер текущей транзакции, либо null вне транзакции.
+     * Буфер привязан к транзакции как ресурс и на время приостановки
+     * (REQUIRES_NEW) отвязывается, поэтому у вложенной транзакции свой буфер.
+     */
+    private PendingNotifications currentBuffer() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingNotifications buffer = (PendingNotifications) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            PendingNotifications created = new PendingNotifications();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(NotificationAggregator.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(NotificationAggregator.this, created);
+                }
+
+                @Override
+                public void afterCommit() {
+                    synchronized (lock) {
+                        pending.merge(created, maxIds);
+                        scheduleFlush();
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(NotificationAggregator.this);
+                }
+            });
+            buffer = created;
+        }
+        return buffer;
+    }
+
+    /**
+     * Запланировать рассылку по окончании окна; вызывается под lock
+     */
+    private void scheduleFlush() {
+        if (flushScheduled || pending.isEmpty()) {
+            return;
+        }
+        flushScheduled = true;
+        taskScheduler.schedule(this::flush, Instant.now().plusMillis(windowMillis));
+    }
+
+    private void flush() {
+        PendingNotifications batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new PendingNotifications();
+            flushScheduled = false;
+        }
+        for (Map.Entry<String, Set<Long>> entry : batch.ids.entrySet()) {
+            Set<Long> ids = entry.getValue();
+            send(new WebSocketNotificationService.NotificationMessage(
+                    entry.getKey(), ids != null ? new ArrayList<>(ids) : null));
+        }
+    }
+
+    private void send(WebSocketNotificationService.NotificationMessage message) {
+        try {
+            messagingTemplate.convertAndSend(TOPIC, message);
+        } catch (MessagingException e) {
+            logger.log(Level.WARNING, "Не удалось разослать уведомление " + message.getAction(), e);
+        }
+    }
+
+    /**
+     * Накопленные события: действие -> идентификаторы.
+     * null вместо набора означает «без id»: изменено много или неизвестно какие.
+     */
+    private static class PendingNotifications {
+        private final Map<String, Set<Long>> ids = new LinkedHashMap<>();
+
+        void add(String action, Long id, int maxIds) {
+            if (id == null) {
+                addBulk(action);
+                return;
+            }
+            Set<Long> current = idsOf(action);
+            if (current != null) {
+                current.add(id);
+                collapseIfFull(action, current, maxIds);
+            }
+        }
+
+        void addAll(String action, Collection<Long> organizationIds, int maxIds) {
+            if (organizationIds == null) {
+                addBulk(action);
+                return;
+            }
+            Set<Long> current = idsOf(action);
+            if (current != null) {
+                current.addAll(organizationIds);
+                collapseIfFull(action, current, maxIds);
+            }
+        }
+
+        void addBulk(String action) {
+            ids.put(action, null);
+        }
+
+        void merge(PendingNotifications other, int maxIds) {
+            for (Map.Entry<String, Set<Long>> entry : other.ids.entrySet()) {
+                addAll(entry.getKey(), entry.getValue(), maxIds);
+            }
+        }
+
+        boolean isEmpty() {
+            return ids.isEmpty();
+        }
+
+        /**
+         * Набор id действия, либо null, если действие уже без id
+         */
+        private Set<Long> idsOf(String action) {
+            if (ids.containsKey(action)) {
+                return ids.get(action);
+            }
+            Set<Long> created = new LinkedHashSet<>();
+            ids.put(action, created);
+            return created;
+        }
+
+        private void collapseIfFull(String action, Set<Long> current, int maxIds) {
+            if (current.size() > maxIds) {
+                addBulk(action);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.itmo.lab3.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.itmo.lab3.dto.OrganizationImportDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Потоковое чтение JSON-массива организаций.
+ *
+ * Файл читается через токены JsonParser, в памяти одновременно находится
+ * не больше одной порции (chunk) DTO, независимо от размера файла.
+ */
+public class OrganizationImportReader implements Closeable {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private int readCount;
+    private boolean finished;
+
+    public OrganizationImportReader(InputStream inputStream, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.createParser(inputStream);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new IllegalArgumentException("Файл должен содержать JSON-массив организаций");
+        }
+    }
+
+    /**
+     * Прочитать следующую порцию организаций.
+     *
+     * @param maxSize максимальный размер порции
+     * @return порция DTO; пустой список означает конец массива
+     */
+    public List<OrganizationImportDto> readChunk(int maxSize) throws IOException {
+        return readChunk(maxSize, null);
+    }
+
+    /**
+     * Прочитать следующую порцию организаций, не прерываясь на строках,
+     * значения которых не приводятся к типам DTO (например, строка в числовом поле).
+     * Такая строка попадает в порцию как null, а причина - в rowErrors.
+     * Синтаксически испорченный JSON по-прежнему прерывает чтение.
+     *
+     * @param maxSize максимальный размер порции
+     * @param rowErrors причины по индексу строки в порции; null - прерываться на первой ошибке
+     * @return порция DTO; пустой список означает конец массива
+     */
+    public List<OrganizationImportDto> readChunk(int maxSize, Map<Integer, String> rowErrors) throws IOException {
+        List<OrganizationImportDto> chunk = new ArrayList<>(Math.min(maxSize, 1024));
+        while (!finished && chunk.size() < maxSize) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                finished = true;
+                break;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Организация #" + (readCount + 1) + ": ожидался JSON-объект");
+            }
+            if (rowErrors == null) {
+                chunk.add(objectMapper.readValue(parser, OrganizationImportDto.class));
+            } else {
+                // Объект читается целиком, поэтому ошибка привязки не сбивает позицию парсера
+                JsonNode node = objectMapper.readTree(parser);
+                try {
+                    chunk.add(objectMapper.treeToValue(node, OrganizationImportDto.class));
+                } catch (JsonMappingException e) {
+                    rowErrors.put(chunk.size(), describeMappingError(e));
+                    chunk.add(null);
+                }
+            }
+            readCount++;
+        }
+        return chunk;
+    }
+
+    private static String describeMappingError(JsonMappingException e) {
+        String path = e.getPath().stream()
+            .map(ref -> ref.getFieldName() != null ? ref.getFieldName() : "[" + ref.getIndex() + "]")
+            .collect(Collectors.joining("."));
+        return path.isEmpty()
+            ? "неверный формат организации"
+            : "неверный формат поля '" + path + "'";
+    }
+
+    public int getReadCount() {
+        return readCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -2,15 +2,19 @@ package org.itmo.lab3.service;
 
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
+import org.itmo.lab3.dto.OrganizationTableDto;
 import org.itmo.lab3.model.Address;
 import org.itmo.lab3.model.Coordinates;
 import org.itmo.lab3.model.Organization;
 import org.itmo.lab3.repository.jpa.AddressRepositoryJpa;
 import org.itmo.lab3.repository.jpa.CoordinatesRepositoryJpa;
 import org.itmo.lab3.repository.jpa.OrganizationRepositoryJpa;
+import org.itmo.lab3.util.KeysetPage;
+import org.itmo.lab3.util.KeysetPageRequest;
 import org.itmo.lab3.util.Page;
 import org.itmo.lab3.util.PageRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
@@ -30,18 +34,24 @@ public class OrganizationService {
     private final CoordinatesRepositoryJpa coordinatesRepository;
     private final WebSocketNotificationService notificationService;
     private final Validator validator;
+    // Расстояние, в пределах которого координаты считаются совпадающими
+    private final double coordinatesTolerance;
+    // Есть ли в БД pg_trgm; null - ещё не проверялось
+    private volatile Boolean trigramSearchAvailable;
 
     @Autowired
     public OrganizationService(OrganizationRepositoryJpa organizationRepository,
                                AddressRepositoryJpa addressRepository,
                                CoordinatesRepositoryJpa coordinatesRepository,
                                WebSocketNotificationService notificationService,
-                               Validator validator) {
+                               Validator validator,
+                               @Value("${coordinates.dedupe-tolerance:0.0001}") double coordinatesTolerance) {
         this.organizationRepository = organizationRepository;
         this.addressRepository = addressRepository;
         this.coordinatesRepository = coordinatesRepository;
         this.notificationService = notificationService;
         this.validator = validator;
+        this.coordinatesTolerance = Math.max(0, coordinatesTolerance);
     }
 
     @Transactional(isolation = Isolation.REPEATABLE_READ)
@@ -92,6 +102,7 @@ public class OrganizationService {
     }
 
     private void ensureUniqueNameAndRatingForCreate(Organization organization) {
+        lockNameAndRating(organization);
         // имя
         if (organizationRepository.existsByName(organization.getName())) {
             throw new IllegalArgumentException("Организация с таким именем уже существует");
@@ -102,6 +113,18 @@ public class OrganizationService {
         }
     }
 
+    /**
+     * Те же advisory-блокировки, что берут транзакции порций импорта с пропуском
+     * невалидных строк: проверка уникальности не пересекается с таким импортом
+     * тех же значений. С импортом в одной транзакции значения разводят
+     * уникальные ограничения.
+     */
+    private void lockNameAndRating(Organization organization) {
+        organizationRepository.lockNamesAndRatings(
+            organization.getName() != null ? List.of(organization.getName()) : List.of(),
+            organization.getRating() != null ? List.of(organization.getRating()) : List.of());
+    }
+
     private void validateOrganization(Organization organization) {
         Set<ConstraintViolation<Organization>> violations = validator.validate(organization);
         if (!violations.isEmpty()) {
@@ -130,6 +153,31 @@ public class OrganizationService {
         return page;
     }
 
+    /**
+     * Строки таблицы главной страницы (проекция, без загрузки сущностей)
+     */
+    @Transactional(readOnly = true)
+    public Page<OrganizationTableDto> getOrganizationTable(PageRequest pageRequest) {
+        return organizationRepository.findTableRows(pageRequest);
+    }
+
+    /**
+     * Поддерживается ли сортировка по полю в режиме keyset-пагинации
+     */
+    public boolean supportsKeysetSort(String property) {
+        return organizationRepository.supportsKeysetSort(property);
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPage<OrganizationTableDto> getOrganizationTable(KeysetPageRequest pageRequest) {
+        return organizationRepository.findTableRows(pageRequest);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<OrganizationTableDto> findOrganizationTableByName(String name, PageRequest pageRequest) {
+        return organizationRepository.findTableRowsByName(name, pageRequest);
+    }
+
     @Transactional(readOnly = true)
     public List<Organization> getAllOrganizations() {
         List<Organization> organizations = organizationRepository.findAll();
@@ -189,6 +237,7 @@ public class OrganizationService {
     }
 
     private void ensureUniqueNameAndRatingForUpdate(Organization organization) {
+        lockNameAndRating(organization);
         // имя: существует кто-то другой с таким же именем?
         if (organizationRepository.existsByNameAndIdNot(organization.getName(), organization.getId())) {
             throw new IllegalArgumentException("Организация с таким именем уже существует");
@@ -223,17 +272,16 @@ public class OrganizationService {
         return organizationRepository.findByNameContainingIgnoreCase(name);
     }
 
+    /**
+     * Удалить организации с заданным рейтингом одним запросом.
+     * Клиенты получают одно уведомление со списком удалённых id.
+     */
     public int deleteOrganizationsByRating(Double rating) {
-        List<Organization> organizations = organizationRepository.findByRating(rating);
-        
-        int count = organizations.size();
-        organizationRepository.deleteAll(organizations);
-        
-        for (Organization org : organizations) {
-            notificationService.notifyOrganizationDeleted(org.getId());
+        List<Long> deletedIds = organizationRepository.deleteByRatingReturningIds(rating);
+        if (!deletedIds.isEmpty()) {
+            notificationService.notifyOrganizationsDeleted(deletedIds);
         }
-        
-        return count;
+        return deletedIds.size();
     }
 
     @Transactional(readOnly = true)
@@ -241,6 +289,22 @@ public class OrganizationService {
         return organizationRepository.findByNameContainingIgnoreCase(nameSubstring);
     }
 
+    /**
+     * Постраничный поиск по подстроке названия с ранжированием результатов.
+     * Наличие pg_trgm проверяется при первом поиске.
+     */
+    @Transactional(readOnly = true)
+    public Page<Organization> searchOrganizationsByName(String text, PageRequest pageRequest) {
+        Boolean similarityRanking = trigramSearchAvailable;
+        if (similarityRanking == null) {
+            similarityRanking = organizationRepository.isTrigramSearchAvailable();
+            trigramSearchAvailable = similarityRanking;
+        }
+        Page<Organization> page = organizationRepository.searchByName(text, similarityRanking, pageRequest);
+        page.getContent().forEach(this::initializeOrganization);
+        return page;
+    }
+
     @Transactional(readOnly = true)
     public List<Address> getUniquePostalAddresses() {
         return organizationRepository.findDistinctPostalAddresses();
@@ -268,14 +332,44 @@ public class OrganizationService {
         return target;
     }
 
+    /**
+     * Адреса для выбора в форме: префикс улицы или индекса, порциями после
+     * адреса afterId. Возвращается до size + 1 адресов, лишний означает продолжение.
+     */
+    @Transactional(readOnly = true)
+    public List<Address> findAddressesForLookup(String prefix, Long afterId, int size) {
+        return addressRepository.findByPrefix(prefix, afterId, size);
+    }
+
+    /**
+     * Координаты для выбора в форме, постранично в порядке id.
+     * Возвращается до size + 1 координат, лишние означают следующую страницу.
+     */
+    @Transactional(readOnly = true)
+    public List<Coordinates> findCoordinatesForLookup(int page, int size) {
+        return coordinatesRepository.findPage(page * size, size);
+    }
+
     @Transactional(readOnly = true)
-    public List<Address> getAllAddresses() {
-        return addressRepository.findAll();
+    public List<Coordinates> findNearestCoordinates(double x, double y, int limit) {
+        return coordinatesRepository.findNearest(x, y, limit);
     }
 
     @Transactional(readOnly = true)
-    public List<Coordinates> getAllCoordinates() {
-        return coordinatesRepository.findAll();
+    public List<Coordinates> findCoordinatesWithin(double minX, double minY, double maxX, double maxY, int limit) {
+        return coordinatesRepository.findWithinBox(Math.min(minX, maxX), Math.min(minY, maxY),
+                Math.max(minX, maxX), Math.max(minY, maxY), limit);
+    }
+
+    /**
+     * Организации с координатами в прямоугольнике, постранично в порядке id.
+     * Возвращается до size + 1 строк, лишняя означает следующую страницу.
+     */
+    @Transactional(readOnly = true)
+    public List<OrganizationTableDto> findOrganizationsWithin(double minX, double minY, double maxX, double maxY,
+                                                              int page, int size) {
+        return organizationRepository.findTableRowsWithinBox(Math.min(minX, maxX), Math.min(minY, maxY),
+                Math.max(minX, maxX), Math.max(minY, maxY), page * size, size);
     }
     
     @Transactional(readOnly = true)
@@ -283,12 +377,14 @@ public class OrganizationService {
         return coordinatesRepository.findById(id).orElse(null);
     }
     
-    public Organization addEmployeeToOrganization(Long organizationId) {
-        Organization organization = organizationRepository.findById(organizationId)
+    /**
+     * Добавить сотрудника в организацию.
+     * Счётчик увеличивается одним атомарным UPDATE без чтения сущности,
+     * поэтому одновременные нажатия не теряют приращений.
+     */
+    public OrganizationTableDto addEmployeeToOrganization(Long organizationId) {
+        OrganizationTableDto updated = organizationRepository.incrementEmployeesCount(organizationId, 1)
                 .orElseThrow(() -> new IllegalArgumentException("Организация не найдена"));
-        
-        organization.setEmployeesCount(organization.getEmployeesCount() + 1);
-        Organization updated = organizationRepository.save(organization);
         notificationService.notifyOrganizationUpdated(updated.getId());
         return updated;
     }
@@ -316,10 +412,14 @@ public class OrganizationService {
         organization.setCoordinates(resolved);
     }
 
+    /**
+     * Существующие координаты в пределах coordinatesTolerance от (x, y)
+     * или новые: точки, различающиеся лишь погрешностью float, не дублируются.
+     */
     private Coordinates resolveCoordinates(Integer x, Float y) {
-        List<Coordinates> existingList = coordinatesRepository.findByXAndY(x, y);
-        if (!existingList.isEmpty()) {
-            return existingList.get(0);
+        Optional<Coordinates> existing = coordinatesRepository.findNearestWithin(x, y, coordinatesTolerance);
+        if (existing.isPresent()) {
+            return existing.get();
         }
         Coordinates coordinates = new Coordinates();
         coordinates.setX(x);
@@ -4,40 +4,75 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
+/**
+ * Уведомления клиентов об изменениях организаций.
+ * События организаций копятся в NotificationAggregator и рассылаются
+ * пачками после коммита; прогресс импорта отправляется сразу.
+ */
 @Service
 public class WebSocketNotificationService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationAggregator aggregator;
 
     @Autowired
-    public WebSocketNotificationService(SimpMessagingTemplate messagingTemplate) {
+    public WebSocketNotificationService(SimpMessagingTemplate messagingTemplate,
+                                        NotificationAggregator aggregator) {
         this.messagingTemplate = messagingTemplate;
+        this.aggregator = aggregator;
     }
 
     public void notifyOrganizationCreated(Long organizationId) {
-        messagingTemplate.convertAndSend("/topic/organizations", 
-                new NotificationMessage("created", organizationId));
+        aggregator.add("created", organizationId);
+    }
+
+    /**
+     * Уведомление о массовом создании организаций (например, импорт через COPY),
+     * когда отдельные идентификаторы не рассылаются.
+     */
+    public void notifyOrganizationsCreated() {
+        aggregator.addBulk("created");
     }
 
     public void notifyOrganizationUpdated(Long organizationId) {
-        messagingTemplate.convertAndSend("/topic/organizations", 
-                new NotificationMessage("updated", organizationId));
+        aggregator.add("updated", organizationId);
     }
 
     public void notifyOrganizationDeleted(Long organizationId) {
-        messagingTemplate.convertAndSend("/topic/organizations", 
-                new NotificationMessage("deleted", organizationId));
+        aggregator.add("deleted", organizationId);
+    }
+
+    /**
+     * Одно уведомление об удалении нескольких организаций (массовое удаление)
+     */
+    public void notifyOrganizationsDeleted(List<Long> organizationIds) {
+        aggregator.addAll("deleted", organizationIds);
+    }
+
+    /**
+     * Прогресс асинхронной задачи импорта, топик отдельный для каждой задачи.
+     */
+    public void notifyImportProgress(ImportJob job) {
+        messagingTemplate.convertAndSend("/topic/import-jobs/" + job.getId(), job);
     }
 
     public static class NotificationMessage {
         private String action;
         private Long organizationId;
+        private List<Long> organizationIds;
 
         public NotificationMessage(String action, Long organizationId) {
             this.action = action;
             this.organizationId = organizationId;
         }
 
+        public NotificationMessage(String action, List<Long> organizationIds) {
+            this.action = action;
+            this.organizationIds = organizationIds;
+        }
+
         public String getAction() {
             return action;
         }
@@ -53,6 +88,14 @@ public class WebSocketNotificationService {
         public void setOrganizationId(Long organizationId) {
             this.organizationId = organizationId;
         }
+
+        public List<Long> getOrganizationIds() {
+            return organizationIds;
+        }
+
+        public void setOrganizationIds(List<Long> organizationIds) {
+            this.organizationIds = organizationIds;
+        }
     }
 }
 
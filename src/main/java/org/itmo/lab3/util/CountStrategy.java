@@ -0,0 +1,39 @@
+package org.itmo.lab3.util;
+
+/**
+ * Способ получения общего количества записей для страницы.
+ */
+public enum CountStrategy {
+
+    /**
+     * Точный COUNT. Результат берётся из кэша запросов Hibernate,
+     * который сбрасывается при любой записи в таблицу организаций.
+     */
+    EXACT,
+
+    /**
+     * Оценка по статистике PostgreSQL без подсчёта строк.
+     * Подходит для больших таблиц, где точное число не важно.
+     */
+    ESTIMATED,
+
+    /**
+     * Без подсчёта: выбирается на одну строку больше размера страницы,
+     * чтобы узнать, есть ли следующая страница.
+     */
+    NONE;
+
+    /**
+     * Стратегия по имени без учёта регистра; для пустого или неизвестного имени - EXACT.
+     */
+    public static CountStrategy fromName(String name) {
+        if (name != null) {
+            for (CountStrategy strategy : values()) {
+                if (strategy.name().equalsIgnoreCase(name.trim())) {
+                    return strategy;
+                }
+            }
+        }
+        return EXACT;
+    }
+}
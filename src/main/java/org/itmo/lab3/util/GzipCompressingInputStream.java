@@ -0,0 +1,82 @@
+package org.itmo.lab3.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Поток, отдающий gzip-сжатое содержимое исходного потока.
+ *
+ * Сжатие выполняется по мере чтения порциями по CHUNK_SIZE байт,
+ * поэтому в памяти находится не больше одной сжатой порции.
+ * Размер результата заранее неизвестен.
+ */
+public class GzipCompressingInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final PendingBytes pending = new PendingBytes();
+    private final GZIPOutputStream gzip;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int position;
+    private boolean finished;
+
+    public GzipCompressingInputStream(InputStream source) throws IOException {
+        this.source = source;
+        this.gzip = new GZIPOutputStream(pending, CHUNK_SIZE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        // Сжимаем следующую порцию, пока не появятся готовые байты
+        while (position >= pending.size()) {
+            if (finished) {
+                return -1;
+            }
+            pending.reset();
+            position = 0;
+            int read = source.read(chunk);
+            if (read == -1) {
+                gzip.finish();
+                finished = true;
+            } else {
+                gzip.write(chunk, 0, read);
+            }
+        }
+        int count = Math.min(length, pending.size() - position);
+        System.arraycopy(pending.buffer(), position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            source.close();
+        } finally {
+            // Освобождает Deflater
+            gzip.close();
+        }
+    }
+
+    /**
+     * Буфер сжатых байт с доступом к внутреннему массиву без копирования.
+     */
+    private static class PendingBytes extends ByteArrayOutputStream {
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.itmo.lab3.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Курсор keyset-пагинации: значение столбца сортировки и id граничной
+ * записи страницы. Следующая страница начинается строго после этой пары
+ * (или строго перед ней при переходе назад), поэтому запрос не использует OFFSET.
+ *
+ * В URL курсор передаётся как строка Base64 (см. encode/decode).
+ */
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final String property;
+    private final Sort.Direction direction;
+    private final String value;
+    private final long id;
+    private final boolean backward;
+
+    public KeysetCursor(String property, Sort.Direction direction, String value, long id, boolean backward) {
+        if (property == null || direction == null || value == null) {
+            throw new IllegalArgumentException("Cursor property, direction and value must not be null");
+        }
+        this.property = property;
+        this.direction = direction;
+        this.value = value;
+        this.id = id;
+        this.backward = backward;
+    }
+
+    /**
+     * Разобрать курсор из строки, полученной от encode.
+     *
+     * @throws IllegalArgumentException если строка не является курсором
+     */
+    public static KeysetCursor decode(String encoded) {
+        String text;
+        try {
+            text = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        // Значение идёт последним: в нём может встретиться разделитель
+        String[] parts = text.split(SEPARATOR, 5);
+        if (parts.length != 5) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        try {
+            return new KeysetCursor(parts[1], Sort.Direction.valueOf(parts[2]), parts[4],
+                    Long.parseLong(parts[3]), "B".equals(parts[0]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    public String encode() {
+        String text = (backward ? "B" : "F") + SEPARATOR + property + SEPARATOR + direction
+                + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Подходит ли курсор к сортировке запроса.
+     * Курсор, выданный для другой сортировки, не задаёт позицию.
+     */
+    public boolean matches(Sort.Order order) {
+        return property.equals(order.getProperty()) && direction == order.getDirection();
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * true - страница перед граничной записью (переход назад)
+     */
+    public boolean isBackward() {
+        return backward;
+    }
+}
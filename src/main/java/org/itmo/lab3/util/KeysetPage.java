@@ -0,0 +1,68 @@
+package org.itmo.lab3.util;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Страница keyset-пагинации.
+ *
+ * Общее количество записей и номер страницы не вычисляются: вместо них
+ * есть курсоры соседних страниц (null, если соседней страницы нет).
+ */
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final KeysetPageRequest pageable;
+    private final KeysetCursor nextCursor;
+    private final KeysetCursor previousCursor;
+
+    public KeysetPage(List<T> content, KeysetPageRequest pageable,
+                      KeysetCursor nextCursor, KeysetCursor previousCursor) {
+        this.content = content;
+        this.pageable = pageable;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public List<T> getContent() {
+        return Collections.unmodifiableList(content);
+    }
+
+    public int getSize() {
+        return pageable.getPageSize();
+    }
+
+    public int getNumberOfElements() {
+        return content.size();
+    }
+
+    public boolean hasContent() {
+        return !content.isEmpty();
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+
+    /**
+     * Курсор следующей страницы в виде строки для URL, либо null
+     */
+    public String getNextCursor() {
+        return nextCursor != null ? nextCursor.encode() : null;
+    }
+
+    /**
+     * Курсор предыдущей страницы в виде строки для URL, либо null
+     */
+    public String getPreviousCursor() {
+        return previousCursor != null ? previousCursor.encode() : null;
+    }
+
+    public KeysetPageRequest getPageable() {
+        return pageable;
+    }
+}
@@ -0,0 +1,49 @@
+package org.itmo.lab3.util;
+
+/**
+ * Запрос страницы для keyset-пагинации.
+ *
+ * Вместо номера страницы задаётся курсор граничной записи предыдущей
+ * страницы; без курсора запрашивается первая страница. Сортировка -
+ * по одному столбцу, при равенстве значений записи упорядочиваются по id.
+ */
+public class KeysetPageRequest {
+
+    private final int pageSize;
+    private final Sort.Order order;
+    private final KeysetCursor cursor;
+
+    private KeysetPageRequest(int pageSize, Sort.Order order, KeysetCursor cursor) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must not be less than one");
+        }
+        this.pageSize = pageSize;
+        this.order = order != null ? order : Sort.Order.asc("id");
+        // Курсор от другой сортировки игнорируется: начинаем с первой страницы
+        this.cursor = cursor != null && cursor.matches(this.order) ? cursor : null;
+    }
+
+    public static KeysetPageRequest first(int pageSize, Sort.Order order) {
+        return new KeysetPageRequest(pageSize, order, null);
+    }
+
+    public static KeysetPageRequest of(int pageSize, Sort.Order order, KeysetCursor cursor) {
+        return new KeysetPageRequest(pageSize, order, cursor);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public Sort.Order getOrder() {
+        return order;
+    }
+
+    public KeysetCursor getCursor() {
+        return cursor;
+    }
+
+    public boolean isFirst() {
+        return cursor == null;
+    }
+}
@@ -11,6 +11,13 @@ public interface Page<T> {
     
     long getTotalElements();
     
+    /**
+     * false, если getTotalElements - оценка или нижняя граница (см. CountStrategy)
+     */
+    boolean isTotalExact();
+    
+    CountStrategy getCountStrategy();
+    
     int getNumber();
     
     int getSize();
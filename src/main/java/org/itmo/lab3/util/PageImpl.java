@@ -11,16 +11,34 @@ public class PageImpl<T> implements Page<T> {
     private final List<T> content;
     private final PageRequest pageable;
     private final long total;
+    private final boolean totalExact;
+    private final Boolean next;
     
     public PageImpl(List<T> content, PageRequest pageable, long total) {
         this.content = content;
         this.pageable = pageable;
         this.total = total;
+        this.totalExact = true;
+        this.next = null;
+    }
+    
+    /**
+     * Страница с неточным общим количеством (оценка или нижняя граница).
+     * Наличие следующей страницы известно из выборки, а не из total.
+     */
+    public PageImpl(List<T> content, PageRequest pageable, long total, boolean hasNext) {
+        this.content = content;
+        this.pageable = pageable;
+        this.total = total;
+        this.totalExact = false;
+        this.next = hasNext;
     }
     
     @Override
     public int getTotalPages() {
-        return pageable.getPageSize() == 0 ? 1 : (int) Math.ceil((double) total / (double) pageable.getPageSize());
+        int pages = pageable.getPageSize() == 0 ? 1 : (int) Math.ceil((double) total / (double) pageable.getPageSize());
+        // Оценка не должна противоречить известной следующей странице
+        return next != null && next ? Math.max(pages, getNumber() + 2) : pages;
     }
     
     @Override
@@ -28,6 +46,16 @@ public class PageImpl<T> implements Page<T> {
         return total;
     }
     
+    @Override
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+    
+    @Override
+    public CountStrategy getCountStrategy() {
+        return pageable.getCountStrategy();
+    }
+    
     @Override
     public int getNumber() {
         return pageable.getPageNumber();
@@ -70,6 +98,9 @@ public class PageImpl<T> implements Page<T> {
     
     @Override
     public boolean hasNext() {
+        if (next != null) {
+            return next;
+        }
         return getNumber() + 1 < getTotalPages();
     }
     
@@ -8,8 +8,13 @@ public class PageRequest {
     private final int pageNumber;
     private final int pageSize;
     private final Sort sort;
+    private final CountStrategy countStrategy;
     
     private PageRequest(int pageNumber, int pageSize, Sort sort) {
+        this(pageNumber, pageSize, sort, CountStrategy.EXACT);
+    }
+    
+    private PageRequest(int pageNumber, int pageSize, Sort sort, CountStrategy countStrategy) {
         if (pageNumber < 0) {
             throw new IllegalArgumentException("Page number must not be less than zero");
         }
@@ -19,6 +24,7 @@ public class PageRequest {
         this.pageNumber = pageNumber;
         this.pageSize = pageSize;
         this.sort = sort;
+        this.countStrategy = countStrategy != null ? countStrategy : CountStrategy.EXACT;
     }
     
     public static PageRequest of(int pageNumber, int pageSize) {
@@ -41,20 +47,31 @@ public class PageRequest {
         return sort;
     }
     
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+    
+    /**
+     * Тот же запрос с другим способом подсчёта общего количества
+     */
+    public PageRequest withCountStrategy(CountStrategy countStrategy) {
+        return new PageRequest(pageNumber, pageSize, sort, countStrategy);
+    }
+    
     public long getOffset() {
         return (long) pageNumber * (long) pageSize;
     }
     
     public PageRequest next() {
-        return new PageRequest(pageNumber + 1, pageSize, sort);
+        return new PageRequest(pageNumber + 1, pageSize, sort, countStrategy);
     }
     
     public PageRequest previous() {
-        return pageNumber == 0 ? this : new PageRequest(pageNumber - 1, pageSize, sort);
+        return pageNumber == 0 ? this : new PageRequest(pageNumber - 1, pageSize, sort, countStrategy);
     }
     
     public PageRequest first() {
-        return new PageRequest(0, pageSize, sort);
+        return new PageRequest(0, pageSize, sort, countStrategy);
     }
     
     public boolean hasPrevious() {
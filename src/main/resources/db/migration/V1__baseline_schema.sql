@@ -0,0 +1,104 @@
+-- Базовая схема, ранее создававшаяся hibernate.hbm2ddl.auto=update.
+-- Идемпотентна: на существующей БД (baseline на версии 0) объекты,
+-- созданные Hibernate, не пересоздаются.
+
+-- Шаг последовательностей совпадает с allocationSize в @SequenceGenerator (50):
+-- pooled-lo оптимизатор берёт один nextval на 50 идентификаторов.
+-- В старых БД addresses_id_seq и coordinates_id_seq принадлежат
+-- IDENTITY-столбцам; явная вставка id в них допустима (GENERATED BY DEFAULT).
+CREATE SEQUENCE IF NOT EXISTS organizations_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS addresses_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS coordinates_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS import_history_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS import_row_errors_id_seq INCREMENT BY 50;
+ALTER SEQUENCE organizations_id_seq INCREMENT BY 50;
+ALTER SEQUENCE addresses_id_seq INCREMENT BY 50;
+ALTER SEQUENCE coordinates_id_seq INCREMENT BY 50;
+ALTER SEQUENCE import_history_id_seq INCREMENT BY 50;
+ALTER SEQUENCE import_row_errors_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS coordinates (
+    id BIGINT NOT NULL PRIMARY KEY,
+    x  INTEGER NOT NULL,
+    y  REAL    NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS addresses (
+    id       BIGINT       NOT NULL PRIMARY KEY,
+    street   VARCHAR(180) NOT NULL,
+    zip_code VARCHAR(50)  NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS organizations (
+    id                  BIGINT           NOT NULL PRIMARY KEY,
+    name                VARCHAR(255)     NOT NULL,
+    coordinates_id      BIGINT           NOT NULL REFERENCES coordinates (id),
+    creation_date       DATE             NOT NULL,
+    official_address_id BIGINT           REFERENCES addresses (id),
+    annual_turnover     BIGINT           NOT NULL,
+    employees_count     INTEGER          NOT NULL,
+    rating              DOUBLE PRECISION NOT NULL,
+    type                VARCHAR(255)     NOT NULL,
+    postal_address_id   BIGINT           NOT NULL REFERENCES addresses (id),
+    CONSTRAINT uk_organizations_name UNIQUE (name),
+    CONSTRAINT uk_organizations_rating UNIQUE (rating)
+);
+
+CREATE TABLE IF NOT EXISTS import_history (
+    id               BIGINT        NOT NULL PRIMARY KEY,
+    status           VARCHAR(50)   NOT NULL,
+    username         VARCHAR(100)  NOT NULL,
+    imported_count   INTEGER,
+    rejected_count   INTEGER,
+    timestamp        TIMESTAMP(6)  NOT NULL,
+    error_message    VARCHAR(1000),
+    file_object_name VARCHAR(255),
+    content_hash     VARCHAR(64)
+);
+
+CREATE TABLE IF NOT EXISTS import_row_errors (
+    id                BIGINT        NOT NULL PRIMARY KEY,
+    import_history_id BIGINT        NOT NULL REFERENCES import_history (id),
+    row_number        INTEGER       NOT NULL,
+    error_message     VARCHAR(1000) NOT NULL
+);
+
+-- Столбцы, добавленные в import_history после первых версий схемы
+ALTER TABLE import_history ADD COLUMN IF NOT EXISTS rejected_count INTEGER;
+ALTER TABLE import_history ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+CREATE INDEX IF NOT EXISTS idx_import_history_content_hash ON import_history (content_hash);
+CREATE INDEX IF NOT EXISTS idx_import_row_errors_history ON import_row_errors (import_history_id, row_number);
+
+-- Уникальность названия и рейтинга в БД, созданных до появления ограничений.
+-- Если в такой БД уже есть повторы, миграция останавливается с перечнем
+-- конфликтующих id (не больше 20 групп) вместо ошибки создания ограничения:
+-- какую из организаций оставить, решает администратор, данные не меняются.
+DO $$
+DECLARE
+    conflicts TEXT;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_organizations_name') THEN
+        SELECT string_agg(format('%L (id %s)', name, ids), '; ' ORDER BY name) INTO conflicts
+        FROM (SELECT name, string_agg(id::text, ', ' ORDER BY id) AS ids
+              FROM organizations GROUP BY name HAVING count(*) > 1
+              ORDER BY name LIMIT 20) d;
+        IF conflicts IS NOT NULL THEN
+            RAISE EXCEPTION 'Нельзя добавить uk_organizations_name: повторяющиеся названия организаций: %', conflicts
+                USING HINT = 'Переименуйте или удалите лишние организации и перезапустите приложение';
+        END IF;
+        ALTER TABLE organizations ADD CONSTRAINT uk_organizations_name UNIQUE (name);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_organizations_rating') THEN
+        SELECT string_agg(format('%s (id %s)', rating, ids), '; ' ORDER BY rating) INTO conflicts
+        FROM (SELECT rating, string_agg(id::text, ', ' ORDER BY id) AS ids
+              FROM organizations WHERE rating IS NOT NULL GROUP BY rating HAVING count(*) > 1
+              ORDER BY rating LIMIT 20) d;
+        IF conflicts IS NOT NULL THEN
+            RAISE EXCEPTION 'Нельзя добавить uk_organizations_rating: повторяющиеся рейтинги организаций: %', conflicts
+                USING HINT = 'Измените рейтинг или удалите лишние организации и перезапустите приложение';
+        END IF;
+        ALTER TABLE organizations ADD CONSTRAINT uk_organizations_rating UNIQUE (rating);
+    END IF;
+END
+$$;
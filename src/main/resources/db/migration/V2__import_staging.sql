@@ -0,0 +1,21 @@
+-- Промежуточная таблица для импорта через COPY (CopyImportEngine).
+-- UNLOGGED: не пишется в WAL, содержимое нужно только внутри транзакции импорта.
+CREATE UNLOGGED TABLE IF NOT EXISTS import_staging (
+    batch_id            VARCHAR(36)      NOT NULL,
+    row_num             INTEGER          NOT NULL,
+    name                VARCHAR(255),
+    coord_x             INTEGER,
+    coord_y             REAL,
+    official_street     VARCHAR(180),
+    official_zip        VARCHAR(50),
+    annual_turnover     BIGINT,
+    employees_count     INTEGER,
+    rating              DOUBLE PRECISION,
+    type                VARCHAR(255),
+    postal_street       VARCHAR(180),
+    postal_zip          VARCHAR(50),
+    coordinates_id      BIGINT,
+    postal_address_id   BIGINT,
+    official_address_id BIGINT
+);
+CREATE INDEX IF NOT EXISTS import_staging_batch_idx ON import_staging (batch_id, row_num);
@@ -0,0 +1,21 @@
+-- Индексы столбцов, по которым ищет приложение.
+-- name и rating индексируются уникальными ограничениями из V1
+-- (existsByName, findByRating, findExistingNames/Ratings).
+
+-- findByEmployeesCountLessThan
+CREATE INDEX IF NOT EXISTS idx_organizations_employees_count ON organizations (employees_count);
+
+-- Фильтр главной страницы: LOWER(name) = LOWER(:name)
+CREATE INDEX IF NOT EXISTS organizations_name_lower_idx ON organizations (lower(name));
+
+-- Внешние ключи: удаление адресов и координат, поиск их использования
+CREATE INDEX IF NOT EXISTS idx_organizations_coordinates ON organizations (coordinates_id);
+CREATE INDEX IF NOT EXISTS idx_organizations_postal_address ON organizations (postal_address_id);
+CREATE INDEX IF NOT EXISTS idx_organizations_official_address ON organizations (official_address_id);
+
+-- findByStreetAndZipCode, findByZipCodeIn, existsByZipCode.
+-- zipCode уникален только внутри файла импорта, поэтому индекс не уникальный
+CREATE INDEX IF NOT EXISTS idx_addresses_zip_street ON addresses (zip_code, street);
+
+-- findByXAndY, findByXInAndYIn
+CREATE INDEX IF NOT EXISTS idx_coordinates_xy ON coordinates (x, y);
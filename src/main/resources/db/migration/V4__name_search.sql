@@ -0,0 +1,20 @@
+-- Триграммный индекс поиска по подстроке названия (searchByName).
+-- Расширение pg_trgm может быть недоступно пользователю БД: тогда миграция
+-- не прерывается, поиск работает без индекса и ранжирования по похожести.
+DO $$
+BEGIN
+    CREATE EXTENSION IF NOT EXISTS pg_trgm;
+EXCEPTION
+    WHEN insufficient_privilege OR undefined_file THEN
+        RAISE NOTICE 'pg_trgm недоступно, триграммный индекс не создаётся';
+END
+$$;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+        EXECUTE 'CREATE INDEX IF NOT EXISTS organizations_name_trgm_idx '
+             || 'ON organizations USING gin (name gin_trgm_ops)';
+    END IF;
+END
+$$;
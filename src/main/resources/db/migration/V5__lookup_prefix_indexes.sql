@@ -0,0 +1,5 @@
+-- Префиксный поиск адресов для формы организации (AddressRepositoryJpa.findByPrefix).
+-- text_pattern_ops позволяет использовать индекс для LIKE 'префикс%'
+-- независимо от правил сортировки БД.
+CREATE INDEX IF NOT EXISTS idx_addresses_street_lower_prefix ON addresses (lower(street) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_addresses_zip_prefix ON addresses (zip_code text_pattern_ops);
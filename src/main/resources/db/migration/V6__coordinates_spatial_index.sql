@@ -0,0 +1,5 @@
+-- Пространственный индекс координат на встроенном типе point (без PostGIS).
+-- GiST по point(x, y) обслуживает поиск ближайших (ORDER BY <-> LIMIT k),
+-- попадание в прямоугольник (<@ box) и в окрестность точки (<@ circle).
+-- Запросы должны использовать то же выражение point(x, y), что и индекс.
+CREATE INDEX IF NOT EXISTS idx_coordinates_point ON coordinates USING gist (point(x, y));
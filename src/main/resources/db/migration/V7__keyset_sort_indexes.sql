@@ -0,0 +1,16 @@
+-- Индексы keyset-пагинации таблицы организаций (findTableRows).
+-- Страница выбирается условием (столбец, id) > (:value, :id) и
+-- ORDER BY столбец, id: индекс (столбец, id) отдаёт строки сразу в нужном
+-- порядке начиная с границы, при DESC он читается в обратном направлении.
+-- Сортировка по id обслуживается первичным ключом.
+-- Уникальные индексы name и rating здесь не подходят: по ним нельзя
+-- продолжить порядок по id, и планировщик добавил бы сортировку.
+CREATE INDEX IF NOT EXISTS idx_organizations_name_id ON organizations (name, id);
+CREATE INDEX IF NOT EXISTS idx_organizations_type_id ON organizations (type, id);
+CREATE INDEX IF NOT EXISTS idx_organizations_creation_date_id ON organizations (creation_date, id);
+CREATE INDEX IF NOT EXISTS idx_organizations_rating_id ON organizations (rating, id);
+CREATE INDEX IF NOT EXISTS idx_organizations_annual_turnover_id ON organizations (annual_turnover, id);
+CREATE INDEX IF NOT EXISTS idx_organizations_employees_count_id ON organizations (employees_count, id);
+
+-- findByEmployeesCountLessThan обслуживается индексом (employees_count, id)
+DROP INDEX IF EXISTS idx_organizations_employees_count;
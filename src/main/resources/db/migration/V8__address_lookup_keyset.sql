@@ -0,0 +1,7 @@
+-- Подбор адресов по префиксу с продолжением по ключу (AddressRepositoryJpa.findByPrefix).
+-- Запрос сортирует по lower(street) COLLATE "C", id: в сортировке "C" обычный
+-- btree-индекс обслуживает и префиксный LIKE, и ORDER BY, и условие
+-- (lower(street), id) > (...). Индекс с text_pattern_ops из V5 для ORDER BY
+-- не подходит, поэтому заменяется этим.
+CREATE INDEX IF NOT EXISTS idx_addresses_street_lower_id ON addresses ((lower(street) COLLATE "C"), id);
+DROP INDEX IF EXISTS idx_addresses_street_lower_prefix;
@@ -1,4 +1,11 @@
 let stompClient = null;
+let reloadTimer = null;
+let firstNotificationAt = 0;
+
+// Уведомления приходят пачками; перезагрузка откладывается, пока идут
+// новые пачки, но не дольше RELOAD_MAX_WAIT_MS от первой
+const RELOAD_DEBOUNCE_MS = 1000;
+const RELOAD_MAX_WAIT_MS = 5000;
 
 function connect() {
     const socket = new SockJS(getContextPath() + '/ws');
@@ -27,13 +34,26 @@ function disconnect() {
 function handleNotification(notification) {
     console.log('Received notification:', notification);
     
+    // organizationIds не проверяются: изменение организации вне текущей
+    // страницы может сдвинуть сортировку или пагинацию, поэтому страница
+    // перезагружается при любом изменении
     const action = notification.action;
-    const orgId = notification.organizationId;
     
     if (action === 'created' || action === 'updated' || action === 'deleted') {
         // Перезагрузить страницу для обновления данных
-        reloadPage();
+        scheduleReload();
+    }
+}
+
+function scheduleReload() {
+    const now = Date.now();
+    if (reloadTimer === null) {
+        firstNotificationAt = now;
+    } else {
+        clearTimeout(reloadTimer);
     }
+    const delay = Math.min(RELOAD_DEBOUNCE_MS, Math.max(0, firstNotificationAt + RELOAD_MAX_WAIT_MS - now));
+    reloadTimer = setTimeout(reloadPage, delay);
 }
 
 function reloadPage() {
@@ -35,21 +35,13 @@
 
             <fieldset>
                 <legend>Координаты *</legend>
-                <c:if test="${not empty existingCoordinates}">
-                    <div class="form-group">
-                        <label>Или выберите существующие координаты:</label>
-                        <select id="selectCoordinates" onchange="fillCoordinates(this.value)">
-                            <option value="">-- Создать новые --</option>
-                            <c:forEach var="coord" items="${existingCoordinates}">
-                                <option value="${coord.id}" 
-                                        data-x="${coord.x}" 
-                                        data-y="${coord.y}">
-                                    (${coord.x}, ${coord.y}) - ID: ${coord.id}
-                                </option>
-                            </c:forEach>
-                        </select>
-                    </div>
-                </c:if>
+                <div class="form-group">
+                    <label>Или выберите существующие координаты:</label>
+                    <button type="button" onclick="loadNearestCoordinates()">Ближайшие к введённым X, Y</button>
+                    <select id="selectCoordinates" onchange="fillCoordinates(this.value)">
+                        <option value="">-- Создать новые --</option>
+                    </select>
+                </div>
                 <c:if test="${empty organization.coordinates}">
                     <jsp:useBean id="coordinates" class="org.itmo.lab3.model.Coordinates" scope="request"/>
                     <c:set target="${organization}" property="coordinates" value="${coordinates}"/>
@@ -69,21 +61,16 @@
 
             <fieldset>
                 <legend>Почтовый адрес *</legend>
-                <c:if test="${not empty existingAddresses}">
-                    <div class="form-group">
-                        <label>Или выберите существующий адрес:</label>
-                        <select id="selectPostalAddress" onchange="fillPostalAddress(this.value)">
-                            <option value="">-- Создать новый --</option>
-                            <c:forEach var="addr" items="${existingAddresses}">
-                                <option value="${addr.id}" 
-                                        data-street="${addr.street}" 
-                                        data-zip="${addr.zipCode}">
-                                    ${addr.street}, ${addr.zipCode} - ID: ${addr.id}
-                                </option>
-                            </c:forEach>
-                        </select>
-                    </div>
-                </c:if>
+                <div class="form-group">
+                    <label>Или выберите существующий адрес:</label>
+                    <input type="text" id="searchPostalAddress" placeholder="Начало улицы или индекса"
+                           oninput="searchAddresses(this.value, 'selectPostalAddress')">
+                    <select id="selectPostalAddress" onchange="fillPostalAddress(this.value)">
+                        <option value="">-- Создать новый --</option>
+                    </select>
+                    <button type="button" id="moreSelectPostalAddress" hidden
+                            onclick="moreAddresses('selectPostalAddress')">Ещё адреса</button>
+                </div>
                 <c:if test="${empty organization.postalAddress}">
                     <jsp:useBean id="postalAddress" class="org.itmo.lab3.model.Address" scope="request"/>
                     <c:set target="${organization}" property="postalAddress" value="${postalAddress}"/>
@@ -102,21 +89,16 @@
 
             <fieldset>
                 <legend>Официальный адрес (необязательно)</legend>
-                <c:if test="${not empty existingAddresses}">
-                    <div class="form-group">
-                        <label>Или выберите существующий адрес:</label>
-                        <select id="selectOfficialAddress" onchange="fillOfficialAddress(this.value)">
-                            <option value="">-- Создать новый --</option>
-                            <c:forEach var="addr" items="${existingAddresses}">
-                                <option value="${addr.id}" 
-                                        data-street="${addr.street}" 
-                                        data-zip="${addr.zipCode}">
-                                    ${addr.street}, ${addr.zipCode} - ID: ${addr.id}
-                                </option>
-                            </c:forEach>
-                        </select>
-                    </div>
-                </c:if>
+                <div class="form-group">
+                    <label>Или выберите существующий адрес:</label>
+                    <input type="text" id="searchOfficialAddress" placeholder="Начало улицы или индекса"
+                           oninput="searchAddresses(this.value, 'selectOfficialAddress')">
+                    <select id="selectOfficialAddress" onchange="fillOfficialAddress(this.value)">
+                        <option value="">-- Создать новый --</option>
+                    </select>
+                    <button type="button" id="moreSelectOfficialAddress" hidden
+                            onclick="moreAddresses('selectOfficialAddress')">Ещё адреса</button>
+                </div>
                 <div class="form-group">
                     <label>Улица (макс 180 символов)</label>
                     <form:input path="officialAddress.street" maxlength="180" id="officialStreet"/>
@@ -168,6 +150,103 @@
     </div>
 
     <script>
+        const LOOKUP_URL = '${pageContext.request.contextPath}/api/lookup';
+        const LOOKUP_SIZE = 20;
+        const LOOKUP_DELAY_MS = 300;
+        const lookupTimers = {};
+        // Префикс и id последнего показанного адреса для кнопки «Ещё адреса»
+        const addressSearches = {};
+
+        // Заменить варианты выбора, оставив первый пункт «создать новый»
+        function replaceOptions(selectId, items, label, dataAttributes) {
+            document.getElementById(selectId).length = 1;
+            appendOptions(selectId, items, label, dataAttributes);
+        }
+
+        function appendOptions(selectId, items, label, dataAttributes) {
+            const select = document.getElementById(selectId);
+            items.forEach(function (item) {
+                const option = document.createElement('option');
+                option.value = item.id;
+                option.textContent = label(item);
+                Object.keys(dataAttributes).forEach(function (attribute) {
+                    option.setAttribute(attribute, item[dataAttributes[attribute]]);
+                });
+                select.appendChild(option);
+            });
+        }
+
+        function lookup(path, params, onItems) {
+            fetch(LOOKUP_URL + path + '?' + new URLSearchParams(params))
+                .then(function (response) { return response.json(); })
+                .then(function (data) { onItems(data.items, data); })
+                .catch(function (error) { console.error('Ошибка загрузки вариантов:', error); });
+        }
+
+        function addressLabel(a) {
+            return a.street + ', ' + a.zipCode + ' - ID: ' + a.id;
+        }
+
+        function showMoreAddresses(selectId, data) {
+            addressSearches[selectId].after = data.next;
+            document.getElementById('more' + selectId.charAt(0).toUpperCase() + selectId.slice(1)).hidden = !data.hasNext;
+        }
+
+        // Адреса запрашиваются после паузы в вводе, а не на каждое нажатие;
+        // без префикса список пуст
+        function searchAddresses(prefix, selectId) {
+            clearTimeout(lookupTimers[selectId]);
+            const q = prefix.trim();
+            addressSearches[selectId] = {q: q, after: null};
+            if (q === '') {
+                replaceOptions(selectId, [], addressLabel, {});
+                showMoreAddresses(selectId, {hasNext: false, next: null});
+                return;
+            }
+            lookupTimers[selectId] = setTimeout(function () {
+                lookup('/addresses', {q: q, size: LOOKUP_SIZE}, function (items, data) {
+                    replaceOptions(selectId, items, addressLabel,
+                        {'data-street': 'street', 'data-zip': 'zipCode'});
+                    showMoreAddresses(selectId, data);
+                });
+            }, LOOKUP_DELAY_MS);
+        }
+
+        // Следующая порция адресов после последнего показанного
+        function moreAddresses(selectId) {
+            const search = addressSearches[selectId];
+            lookup('/addresses', {q: search.q, after: search.after, size: LOOKUP_SIZE}, function (items, data) {
+                if (addressSearches[selectId] !== search) {
+                    return;
+                }
+                appendOptions(selectId, items, addressLabel,
+                    {'data-street': 'street', 'data-zip': 'zipCode'});
+                showMoreAddresses(selectId, data);
+            });
+        }
+
+        function loadCoordinates(params) {
+            lookup('/coordinates', params, function (items) {
+                replaceOptions('selectCoordinates', items,
+                    function (c) { return '(' + c.x + ', ' + c.y + ') - ID: ' + c.id; },
+                    {'data-x': 'x', 'data-y': 'y'});
+            });
+        }
+
+        function loadNearestCoordinates() {
+            const x = document.getElementById('coordX').value;
+            const y = document.getElementById('coordY').value;
+            if (x === '' || y === '') {
+                loadCoordinates({size: LOOKUP_SIZE});
+            } else {
+                loadCoordinates({x: x, y: y, size: LOOKUP_SIZE});
+            }
+        }
+
+        window.addEventListener('load', function () {
+            loadCoordinates({size: LOOKUP_SIZE});
+        });
+
         function fillCoordinates(optionValue) {
             if (optionValue) {
                 const option = document.getElementById('selectCoordinates').options[document.getElementById('selectCoordinates').selectedIndex];
@@ -6,6 +6,9 @@
 <head>
     <title>Импорт организаций</title>
     <link rel="stylesheet" href="${pageContext.request.contextPath}/resources/css/style.css">
+    <!-- WebSocket libraries (прогресс асинхронного импорта) -->
+    <script src="https://cdn.jsdelivr.net/npm/sockjs-client@1/dist/sockjs.min.js"></script>
+    <script src="https://cdn.jsdelivr.net/npm/stompjs@2.3.3/lib/stomp.min.js"></script>
     <style>
         .import-container {
             max-width: 1200px;
@@ -86,6 +89,10 @@
             color: red;
             font-weight: bold;
         }
+        .status-partial {
+            color: #e68a00;
+            font-weight: bold;
+        }
         .back-link {
             display: inline-block;
             margin-bottom: 20px;
@@ -103,6 +110,11 @@
         .download-link:hover {
             text-decoration: underline;
         }
+        .alert-info {
+            background-color: #d1ecf1;
+            color: #0c5460;
+            border: 1px solid #bee5eb;
+        }
         .format-example {
             background: #fff;
             padding: 15px;
@@ -129,6 +141,10 @@
             <div class="alert alert-error">${error}</div>
         </c:if>
 
+        <c:if test="${not empty jobId}">
+            <div class="alert alert-info" id="jobProgress" data-job-id="${jobId}">Задача ${jobId}: в очереди</div>
+        </c:if>
+
         <div class="upload-form">
             <h2>Загрузка файла</h2>
             <form action="${pageContext.request.contextPath}/import/upload" method="post" enctype="multipart/form-data">
@@ -140,6 +156,24 @@
                     <label for="file">Выберите JSON файл:</label>
                     <input type="file" id="file" name="file" accept=".json" required>
                 </div>
+                <div class="form-group">
+                    <label>
+                        <input type="checkbox" name="async" value="true">
+                        Выполнить в фоне (для больших файлов)
+                    </label>
+                </div>
+                <div class="form-group">
+                    <label>
+                        <input type="checkbox" name="skipInvalid" value="true">
+                        Пропускать невалидные строки (остальные будут импортированы)
+                    </label>
+                </div>
+                <div class="form-group">
+                    <label>
+                        <input type="checkbox" name="force" value="true">
+                        Импортировать повторно (даже если этот файл уже импортирован)
+                    </label>
+                </div>
                 <button type="submit" class="btn-upload">Загрузить и импортировать</button>
             </form>
 
@@ -183,6 +217,7 @@
                             <th>Пользователь</th>
                             <th>Статус</th>
                             <th>Импортировано</th>
+                            <th>Отклонено</th>
                             <th>Файл</th>
                             <th>Ошибка</th>
                         </tr>
@@ -195,12 +230,12 @@
                                     ${history.timestamp}
                                 </td>
                                 <td>${history.username}</td>
-                                <td class="${history.status == 'SUCCESS' ? 'status-success' : 'status-failed'}">
+                                <td class="${history.status == 'SUCCESS' ? 'status-success' : (history.status == 'PARTIAL' ? 'status-partial' : 'status-failed')}">
                                     ${history.status}
                                 </td>
                                 <td>
                                     <c:choose>
-                                        <c:when test="${history.status == 'SUCCESS'}">
+                                        <c:when test="${history.status == 'SUCCESS' || history.status == 'PARTIAL' || history.importedCount > 0}">
                                             ${history.importedCount}
                                         </c:when>
                                         <c:otherwise>
@@ -208,6 +243,17 @@
                                         </c:otherwise>
                                     </c:choose>
                                 </td>
+                                <td>
+                                    <c:choose>
+                                        <c:when test="${history.rejectedCount > 0}">
+                                            <a href="${pageContext.request.contextPath}/import/history/${history.id}/errors" 
+                                               class="download-link" title="Отклонённые строки">${history.rejectedCount}</a>
+                                        </c:when>
+                                        <c:otherwise>
+                                            -
+                                        </c:otherwise>
+                                    </c:choose>
+                                </td>
                                 <td>
                                     <c:if test="${not empty history.fileObjectName}">
                                         <a href="${pageContext.request.contextPath}/import/download/${history.fileObjectName}" 
@@ -229,5 +275,49 @@
             </c:otherwise>
         </c:choose>
     </div>
+
+    <script>
+        (function () {
+            const panel = document.getElementById('jobProgress');
+            if (!panel) {
+                return;
+            }
+            const jobId = panel.getAttribute('data-job-id');
+            const contextPath = '${pageContext.request.contextPath}';
+
+            function render(job) {
+                if (job.status === 'SUCCESS' && job.duplicate) {
+                    panel.className = 'alert alert-success';
+                    panel.textContent = 'Задача ' + job.id + ': файл уже импортирован (импорт #' + job.historyId + ')';
+                } else if (job.status === 'SUCCESS') {
+                    panel.className = 'alert alert-success';
+                    panel.textContent = 'Задача ' + job.id + ': импортировано ' + job.insertedCount + ' организаций' +
+                        (job.rejectedCount > 0 ? ', отклонено строк: ' + job.rejectedCount : '');
+                } else if (job.status === 'FAILED') {
+                    panel.className = 'alert alert-error';
+                    panel.textContent = 'Задача ' + job.id + ': ' + job.errorMessage;
+                } else {
+                    panel.textContent = 'Задача ' + job.id + ': ' + job.status + ' / ' + job.phase +
+                        ' — прочитано ' + job.parsedCount + ', проверено ' + job.validatedCount +
+                        ', сохранено ' + job.insertedCount;
+                }
+                if (job.finished) {
+                    // Обновляем историю импорта
+                    setTimeout(function () { window.location.replace(contextPath + '/import'); }, 3000);
+                }
+            }
+
+            const stompClient = Stomp.over(new SockJS(contextPath + '/ws'));
+            stompClient.connect({}, function () {
+                stompClient.subscribe('/topic/import-jobs/' + jobId, function (message) {
+                    render(JSON.parse(message.body));
+                });
+                // Задача могла продвинуться до подписки
+                fetch(contextPath + '/import/jobs/' + jobId)
+                    .then(function (response) { return response.ok ? response.json() : null; })
+                    .then(function (job) { if (job) { render(job); } });
+            });
+        })();
+    </script>
 </body>
 </html>
@@ -51,6 +51,14 @@
                     <option value="10" ${pageSize == 10 ? 'selected' : ''}>10</option>
                     <option value="20" ${pageSize == 20 ? 'selected' : ''}>20</option>
                 </select>
+                <select name="count" title="Подсчёт общего количества">
+                    <option value="exact" ${empty count || count == 'exact' ? 'selected' : ''}>Точное число</option>
+                    <option value="estimated" ${count == 'estimated' ? 'selected' : ''}>Примерное число</option>
+                    <option value="none" ${count == 'none' ? 'selected' : ''}>Без подсчёта</option>
+                </select>
+                <label title="Переход по страницам без OFFSET: быстро на любой глубине, без номеров страниц">
+                    <input type="checkbox" name="keyset" value="true" ${keyset ? 'checked' : ''}> Быстрое листание
+                </label>
                 <button type="submit">Применить</button>
             </form>
         </div>
@@ -82,10 +90,10 @@
                                 <td>${item.id}</td>
                                 <td>${item.name}</td>
                                 <td>
-                                    <c:if test="${item.coordinates != null}">
-                                        (${item.coordinates.x}, ${item.coordinates.y})
+                                    <c:if test="${item.hasCoordinates}">
+                                        (${item.coordX}, ${item.coordY})
                                     </c:if>
-                                    <c:if test="${item.coordinates == null}">—</c:if>
+                                    <c:if test="${not item.hasCoordinates}">—</c:if>
                                 </td>
                                 <td>${item.creationDate}</td>
                                 <td>${item.annualTurnover}</td>
@@ -109,13 +117,36 @@
         </table>
 
         <div class="pagination">
-            <c:if test="${organizations.number > 0}">
-                <a href="${pageContext.request.contextPath}/?page=${organizations.number - 1}&size=${pageSize}&sort=${sort}&order=${order}&filter=${filter}">Предыдущая</a>
-            </c:if>
-            <span>Страница ${organizations.number + 1} из ${organizations.totalPages}</span>
-            <c:if test="${organizations.number < organizations.totalPages - 1}">
-                <a href="${pageContext.request.contextPath}/?page=${organizations.number + 1}&size=${pageSize}&sort=${sort}&order=${order}&filter=${filter}">Следующая</a>
-            </c:if>
+            <c:choose>
+                <c:when test="${keyset}">
+                    <a href="${pageContext.request.contextPath}/?keyset=true&size=${pageSize}&sort=${sort}&order=${order}">В начало</a>
+                    <c:if test="${keysetPage.previousCursor != null}">
+                        <a href="${pageContext.request.contextPath}/?cursor=${keysetPage.previousCursor}&size=${pageSize}&sort=${sort}&order=${order}">Предыдущая</a>
+                    </c:if>
+                    <c:if test="${keysetPage.nextCursor != null}">
+                        <a href="${pageContext.request.contextPath}/?cursor=${keysetPage.nextCursor}&size=${pageSize}&sort=${sort}&order=${order}">Следующая</a>
+                    </c:if>
+                </c:when>
+                <c:otherwise>
+                    <c:if test="${organizations.number > 0}">
+                        <a href="${pageContext.request.contextPath}/?page=${organizations.number - 1}&size=${pageSize}&sort=${sort}&order=${order}&filter=${filter}&count=${count}">Предыдущая</a>
+                    </c:if>
+                    <c:choose>
+                        <c:when test="${organizations.totalExact}">
+                            <span>Страница ${organizations.number + 1} из ${organizations.totalPages}</span>
+                        </c:when>
+                        <c:when test="${organizations.countStrategy == 'ESTIMATED'}">
+                            <span>Страница ${organizations.number + 1} из ~${organizations.totalPages}</span>
+                        </c:when>
+                        <c:otherwise>
+                            <span>Страница ${organizations.number + 1}</span>
+                        </c:otherwise>
+                    </c:choose>
+                    <c:if test="${organizations.number < organizations.totalPages - 1}">
+                        <a href="${pageContext.request.contextPath}/?page=${organizations.number + 1}&size=${pageSize}&sort=${sort}&order=${order}&filter=${filter}&count=${count}">Следующая</a>
+                    </c:if>
+                </c:otherwise>
+            </c:choose>
         </div>
     </div>
 </body>
@@ -95,6 +95,25 @@
                         </c:forEach>
                     </tbody>
                 </table>
+                <c:if test="${resultPage != null && resultPage.totalPages > 1}">
+                    <div class="pagination">
+                        <c:if test="${resultPage.number > 0}">
+                            <form method="post" action="${pageContext.request.contextPath}/special/find-by-name-substring" style="display:inline;">
+                                <input type="hidden" name="nameSubstring" value="${searchValue}">
+                                <input type="hidden" name="page" value="${resultPage.number - 1}">
+                                <button type="submit" class="btn-link">Предыдущая</button>
+                            </form>
+                        </c:if>
+                        <span>Страница ${resultPage.number + 1} из ${resultPage.totalPages} (найдено: ${resultPage.totalElements})</span>
+                        <c:if test="${resultPage.number < resultPage.totalPages - 1}">
+                            <form method="post" action="${pageContext.request.contextPath}/special/find-by-name-substring" style="display:inline;">
+                                <input type="hidden" name="nameSubstring" value="${searchValue}">
+                                <input type="hidden" name="page" value="${resultPage.number + 1}">
+                                <button type="submit" class="btn-link">Следующая</button>
+                            </form>
+                        </c:if>
+                    </div>
+                </c:if>
             </div>
         </c:if>
 
@@ -0,0 +1,213 @@
+package org.itmo.lab3.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.itmo.lab3.model.ImportHistory;
+import org.itmo.lab3.model.ImportRowError;
+import org.itmo.lab3.model.Organization;
+import org.itmo.lab3.repository.jpa.AddressRepositoryJpa;
+import org.itmo.lab3.repository.jpa.CoordinatesRepositoryJpa;
+import org.itmo.lab3.repository.jpa.ImportHistoryRepositoryJpa;
+import org.itmo.lab3.repository.jpa.ImportRowErrorRepositoryJpa;
+import org.itmo.lab3.repository.jpa.OrganizationRepositoryJpa;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportServiceSkipInvalidTest {
+
+    private static ValidatorFactory validatorFactory;
+
+    @Mock
+    private OrganizationRepositoryJpa organizationRepository;
+    @Mock
+    private AddressRepositoryJpa addressRepository;
+    @Mock
+    private CoordinatesRepositoryJpa coordinatesRepository;
+    @Mock
+    private ImportHistoryRepositoryJpa importHistoryRepository;
+    @Mock
+    private ImportRowErrorRepositoryJpa importRowErrorRepository;
+    @Mock
+    private WebSocketNotificationService notificationService;
+    @Mock
+    private CopyImportEngine copyImportEngine;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> savedNames = new ArrayList<>();
+
+    @BeforeAll
+    static void setUpValidator() {
+        validatorFactory = Validation.byDefaultProvider().configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory();
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        validatorFactory.close();
+    }
+
+    @BeforeEach
+    void recordSavedOrganizations() {
+        lenient().when(organizationRepository.save(any(Organization.class))).thenAnswer(invocation -> {
+            Organization organization = invocation.getArgument(0);
+            savedNames.add(organization.getName());
+            return organization;
+        });
+    }
+
+    @Test
+    void validFileIsImportedCompletely() throws IOException {
+        ImportHistory history = importFile(500, row(1), row(2), row(3));
+
+        assertEquals("SUCCESS", history.getStatus());
+        assertEquals(3, history.getImportedCount());
+        assertEquals(0, history.getRejectedCount());
+        assertEquals(List.of("org-1", "org-2", "org-3"), savedNames);
+        verify(importRowErrorRepository, never()).save(any());
+    }
+
+    @Test
+    void invalidAndDuplicateRowsAreRejectedPerRow() throws IOException {
+        ImportHistory history = importFile(500,
+            row(1),
+            row(2).replace("\"rating\": 2.0", "\"rating\": -1.0"),
+            row(3).replace("org-3", "org-1"),
+            row(4).replace("\"rating\": 4.0", "\"rating\": 1.0"),
+            row(5).replace("0000005", "0000001"),
+            row(6).replace("\"rating\": 6.0", "\"rating\": \"высокий\""),
+            row(7));
+
+        assertEquals("PARTIAL", history.getStatus());
+        assertEquals(2, history.getImportedCount());
+        assertEquals(5, history.getRejectedCount());
+        assertEquals(List.of("org-1", "org-7"), savedNames);
+
+        Map<Integer, String> errors = rowErrors();
+        assertEquals(Set.of(2, 3, 4, 5, 6), errors.keySet());
+        assertEquals("Значение поля должно быть больше 0", errors.get(2));
+        assertEquals("дублирующееся имя 'org-1' в файле импорта", errors.get(3));
+        assertEquals("дублирующийся рейтинг '1.0' в файле импорта", errors.get(4));
+        assertEquals("дублирующийся zipCode '0000001' в файле импорта", errors.get(5));
+        assertEquals("неверный формат поля 'rating'", errors.get(6));
+    }
+
+    @Test
+    void duplicatesAreDetectedAcrossChunks() throws IOException {
+        ImportHistory history = importFile(2,
+            row(1),
+            row(2),
+            row(3).replace("org-3", "org-2"),
+            row(4).replace("\"rating\": 4.0", "\"rating\": 1.0"));
+
+        assertEquals(2, history.getImportedCount());
+        assertEquals(2, history.getRejectedCount());
+        Map<Integer, String> errors = rowErrors();
+        assertEquals("дублирующееся имя 'org-2' в файле импорта", errors.get(3));
+        assertEquals("дублирующийся рейтинг '1.0' в файле импорта", errors.get(4));
+    }
+
+    @Test
+    void rejectedRowDoesNotBlockLaterRowWithSameRating() throws IOException {
+        ImportHistory history = importFile(500,
+            row(1),
+            row(2).replace("org-2", "org-1"),
+            row(3).replace("\"rating\": 3.0", "\"rating\": 2.0"));
+
+        assertEquals(2, history.getImportedCount());
+        assertEquals(List.of("org-1", "org-3"), savedNames);
+        assertEquals(Set.of(2), rowErrors().keySet());
+    }
+
+    @Test
+    void rowsConflictingWithDatabaseAreRejected() throws IOException {
+        when(organizationRepository.findExistingNames(anyCollection())).thenReturn(Set.of("org-2"));
+        when(organizationRepository.findExistingRatings(anyCollection())).thenReturn(Set.of(3.0));
+
+        ImportHistory history = importFile(500, row(1), row(2), row(3));
+
+        assertEquals(1, history.getImportedCount());
+        Map<Integer, String> errors = rowErrors();
+        assertEquals("организация с именем 'org-2' уже существует в системе", errors.get(2));
+        assertEquals("организация с рейтингом '3.0' уже существует в системе", errors.get(3));
+    }
+
+    @Test
+    void failedChunkKeepsEarlierChunksAndRollsBack() throws IOException {
+        when(organizationRepository.save(any(Organization.class))).thenAnswer(invocation -> {
+            Organization organization = invocation.getArgument(0);
+            if ("org-3".equals(organization.getName())) {
+                throw new IllegalStateException("сбой БД");
+            }
+            savedNames.add(organization.getName());
+            return organization;
+        });
+
+        ImportHistory history = importFile(2, row(1), row(2), row(3), row(4));
+
+        assertEquals("FAILED", history.getStatus());
+        assertEquals("сбой БД", history.getErrorMessage());
+        assertEquals(2, history.getImportedCount());
+        verify(transactionManager).rollback(any());
+    }
+
+    private ImportHistory importFile(int chunkSize, String... rows) throws IOException {
+        ImportValidationService validationService = new ImportValidationService(
+            validatorFactory.getValidator(), new SyncTaskExecutor(), 64, 100);
+        ImportService importService = new ImportService(organizationRepository, addressRepository,
+            coordinatesRepository, importHistoryRepository, importRowErrorRepository, validationService,
+            notificationService, copyImportEngine, transactionManager, chunkSize, 1000, 50, 1000);
+
+        byte[] json = ("[" + String.join(",", rows) + "]").getBytes(StandardCharsets.UTF_8);
+        try (OrganizationImportReader reader =
+                 new OrganizationImportReader(new ByteArrayInputStream(json), objectMapper)) {
+            return importService.importOrganizationsSkippingInvalid(
+                reader, "user", "file.json", "hash", ImportProgressListener.NONE);
+        }
+    }
+
+    private Map<Integer, String> rowErrors() {
+        ArgumentCaptor<ImportRowError> captor = ArgumentCaptor.forClass(ImportRowError.class);
+        verify(importRowErrorRepository, atLeastOnce()).save(captor.capture());
+        Map<Integer, String> errors = new TreeMap<>();
+        for (ImportRowError error : captor.getAllValues()) {
+            errors.put(error.getRowNumber(), error.getErrorMessage());
+        }
+        return errors;
+    }
+
+    private static String row(int number) {
+        return String.format("""
+            {"name": "org-%d", "coordinates": {"x": %d, "y": 1.5},
+             "postalAddress": {"street": "Street %d", "zipCode": "%07d"},
+             "annualTurnover": 1000, "employeesCount": 10, "rating": %d.0, "type": "COMMERCIAL"}""",
+            number, number, number, number, number);
+    }
+}
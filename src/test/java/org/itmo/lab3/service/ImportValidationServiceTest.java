@@ -0,0 +1,166 @@
+package org.itmo.lab3.service;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.itmo.lab3.dto.OrganizationImportDto;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportValidationServiceTest {
+
+    private static ValidatorFactory validatorFactory;
+    private static Validator validator;
+    private static ExecutorService pool;
+
+    @BeforeAll
+    static void setUp() {
+        validatorFactory = Validation.byDefaultProvider().configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory();
+        validator = validatorFactory.getValidator();
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdownNow();
+        validatorFactory.close();
+    }
+
+    @Test
+    void validRowsHaveNoErrors() {
+        ImportValidationService service = new ImportValidationService(validator, new SyncTaskExecutor(), 64, 10);
+        ImportValidationService.ValidationErrors errors = service.newValidationErrors();
+
+        service.validate(rows(true, true, true), 0, errors);
+
+        assertFalse(errors.hasErrors());
+        assertTrue(errors.getMessages().isEmpty());
+    }
+
+    @Test
+    void rowNumbersIncludeChunkOffset() {
+        ImportValidationService service = new ImportValidationService(validator, new SyncTaskExecutor(), 64, 10);
+        ImportValidationService.ValidationErrors errors = service.newValidationErrors();
+
+        service.validate(rows(true, false, true), 500, errors);
+
+        assertEquals(1, errors.getErrors().size());
+        assertEquals(502, errors.getErrors().get(0).getRowNumber());
+        assertEquals("Значение поля должно быть больше 0", errors.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void limitReachedExactlyIsNotReportedAsExceeded() {
+        ImportValidationService service = new ImportValidationService(validator, new SyncTaskExecutor(), 64, 2);
+        ImportValidationService.ValidationErrors errors = service.newValidationErrors();
+
+        service.validate(rows(false, true, false), 0, errors);
+
+        assertEquals(2, errors.getErrors().size());
+        assertFalse(errors.isLimitExceeded());
+        assertEquals(List.of(
+            "Организация #1: Значение поля должно быть больше 0",
+            "Организация #3: Значение поля должно быть больше 0"), errors.getMessages());
+    }
+
+    @Test
+    void limitAppliesToWholeImportAcrossChunks() {
+        ImportValidationService service = new ImportValidationService(validator, new SyncTaskExecutor(), 64, 3);
+        ImportValidationService.ValidationErrors errors = service.newValidationErrors();
+
+        service.validate(rows(false, true, false), 0, errors);
+        assertFalse(errors.isLimitExceeded());
+        service.validate(rows(false, false, false), 3, errors);
+        assertTrue(errors.isLimitExceeded());
+        // После превышения лимита порции не проверяются
+        service.validate(rows(false), 6, errors);
+
+        assertEquals(List.of(1, 3, 4), rowNumbers(errors));
+        List<String> messages = errors.getMessages();
+        assertEquals(4, messages.size());
+        assertEquals("проверка остановлена после 3 ошибок", messages.get(3));
+    }
+
+    @Test
+    void parallelSlicesKeepFirstErrorsInFileOrder() {
+        ImportValidationService service = new ImportValidationService(
+            validator, new ConcurrentTaskExecutor(pool), 2, 3);
+        boolean[] validity = new boolean[40];
+
+        for (int attempt = 0; attempt < 20; attempt++) {
+            ImportValidationService.ValidationErrors errors = service.newValidationErrors();
+            service.validate(rows(validity), 0, errors);
+
+            assertEquals(List.of(1, 2, 3), rowNumbers(errors));
+            assertTrue(errors.isLimitExceeded());
+        }
+    }
+
+    @Test
+    void extraChecksAreReportedForTheirRow() {
+        ImportValidationService service = new ImportValidationService(validator, new SyncTaskExecutor(), 64, 10);
+        ImportValidationService.ValidationErrors errors = service.newValidationErrors();
+
+        service.validate(rows(true, true), 0, errors,
+            dto -> "org-2".equals(dto.getName()) ? List.of("неизвестный тип") : List.of());
+
+        assertEquals(List.of("Организация #2: неизвестный тип"), errors.getMessages());
+    }
+
+    @Test
+    void validateRowsIsUnlimitedAndSkipsUnparsedRows() {
+        ImportValidationService service = new ImportValidationService(validator, new SyncTaskExecutor(), 64, 1);
+        List<OrganizationImportDto> chunk = rows(false, true, false, false);
+        chunk.set(1, null);
+
+        List<ImportValidationService.RowError> errors = service.validateRows(chunk, 10);
+
+        assertEquals(List.of(11, 13, 14), errors.stream().map(ImportValidationService.RowError::getRowNumber).toList());
+    }
+
+    private static List<Integer> rowNumbers(ImportValidationService.ValidationErrors errors) {
+        return errors.getErrors().stream().map(ImportValidationService.RowError::getRowNumber).toList();
+    }
+
+    private static List<OrganizationImportDto> rows(boolean... valid) {
+        List<OrganizationImportDto> rows = new ArrayList<>();
+        for (int i = 0; i < valid.length; i++) {
+            rows.add(row(i + 1, valid[i]));
+        }
+        return rows;
+    }
+
+    static OrganizationImportDto row(int number, boolean valid) {
+        OrganizationImportDto.CoordinatesDto coordinates = new OrganizationImportDto.CoordinatesDto();
+        coordinates.setX(number);
+        coordinates.setY(number * 1.5f);
+
+        OrganizationImportDto.AddressDto address = new OrganizationImportDto.AddressDto();
+        address.setStreet("Street " + number);
+        address.setZipCode(String.format("%07d", number));
+
+        OrganizationImportDto dto = new OrganizationImportDto();
+        dto.setName("org-" + number);
+        dto.setCoordinates(coordinates);
+        dto.setPostalAddress(address);
+        dto.setAnnualTurnover(1000L * number);
+        dto.setEmployeesCount(number);
+        // Невалидная строка отличается только отрицательным рейтингом
+        dto.setRating(valid ? (double) number : -1.0);
+        dto.setType("COMMERCIAL");
+        return dto;
+    }
+}
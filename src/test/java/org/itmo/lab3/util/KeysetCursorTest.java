@@ -0,0 +1,72 @@
+package org.itmo.lab3.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        KeysetCursor cursor = new KeysetCursor("rating", Sort.Direction.DESC, "4.5", 42L, true);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertEquals("rating", decoded.getProperty());
+        assertEquals(Sort.Direction.DESC, decoded.getDirection());
+        assertEquals("4.5", decoded.getValue());
+        assertEquals(42L, decoded.getId());
+        assertTrue(decoded.isBackward());
+    }
+
+    @Test
+    void valueMayContainSeparatorAndNonAsciiText() {
+        String value = "ООО «Ромашка»\nфилиал";
+        KeysetCursor cursor = new KeysetCursor("name", Sort.Direction.ASC, value, 7L, false);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertEquals(value, decoded.getValue());
+        assertEquals(7L, decoded.getId());
+        assertFalse(decoded.isBackward());
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        KeysetCursor cursor = new KeysetCursor("name", Sort.Direction.ASC, "???>>>~~~", 1L, false);
+
+        assertTrue(cursor.encode().matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void decodeRejectsMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("не base64!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("F\nname\nASC")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("F\nname\nSIDEWAYS\n1\nx")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("F\nname\nASC\nnot-a-number\nx")));
+    }
+
+    @Test
+    void constructorRejectsNullParts() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new KeysetCursor(null, Sort.Direction.ASC, "x", 1L, false));
+        assertThrows(IllegalArgumentException.class,
+            () -> new KeysetCursor("name", null, "x", 1L, false));
+        assertThrows(IllegalArgumentException.class,
+            () -> new KeysetCursor("name", Sort.Direction.ASC, null, 1L, false));
+    }
+
+    @Test
+    void matchesOnlySameSort() {
+        KeysetCursor cursor = new KeysetCursor("name", Sort.Direction.ASC, "x", 1L, false);
+
+        assertTrue(cursor.matches(Sort.Order.asc("name")));
+        assertFalse(cursor.matches(Sort.Order.desc("name")));
+        assertFalse(cursor.matches(Sort.Order.asc("rating")));
+    }
+
+    private static String encodeRaw(String text) {
+        return java.util.Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(text.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,51 @@
+package org.itmo.lab3.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetPageRequestTest {
+
+    @Test
+    void firstPageWithoutOrderSortsById() {
+        KeysetPageRequest request = KeysetPageRequest.first(20, null);
+
+        assertEquals(20, request.getPageSize());
+        assertEquals("id", request.getOrder().getProperty());
+        assertEquals(Sort.Direction.ASC, request.getOrder().getDirection());
+        assertTrue(request.isFirst());
+        assertNull(request.getCursor());
+    }
+
+    @Test
+    void keepsCursorForSameSort() {
+        KeysetCursor cursor = new KeysetCursor("rating", Sort.Direction.DESC, "3.0", 5L, false);
+
+        KeysetPageRequest request = KeysetPageRequest.of(10, Sort.Order.desc("rating"), cursor);
+
+        assertSame(cursor, request.getCursor());
+        assertFalse(request.isFirst());
+    }
+
+    @Test
+    void dropsCursorFromAnotherSort() {
+        KeysetCursor byName = new KeysetCursor("name", Sort.Direction.ASC, "x", 5L, false);
+        KeysetCursor byRatingAsc = new KeysetCursor("rating", Sort.Direction.ASC, "3.0", 5L, false);
+
+        assertTrue(KeysetPageRequest.of(10, Sort.Order.desc("rating"), byName).isFirst());
+        assertTrue(KeysetPageRequest.of(10, Sort.Order.desc("rating"), byRatingAsc).isFirst());
+    }
+
+    @Test
+    void cursorWithoutOrderMatchesDefaultIdSort() {
+        KeysetCursor cursor = new KeysetCursor("id", Sort.Direction.ASC, "5", 5L, false);
+
+        assertSame(cursor, KeysetPageRequest.of(10, null, cursor).getCursor());
+    }
+
+    @Test
+    void rejectsPageSizeBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetPageRequest.first(0, null));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPageRequest.of(-1, null, null));
+    }
+}